@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.google.cloud.datastore.Cursor;
+
+/**
+ * One page of an asynchronously streamed query. The following page is only fetched
+ * when {@link #next()} is called, so consumers control the rate of Datastore RPCs.
+ */
+public final class AsyncPage<T> {
+
+	private final List<T> content;
+
+	private final Cursor endCursor;
+
+	private final Function<Cursor, CompletableFuture<AsyncPage<T>>> fetcher;
+
+	AsyncPage(List<T> content, Cursor endCursor,
+			Function<Cursor, CompletableFuture<AsyncPage<T>>> fetcher) {
+		this.content = Collections.unmodifiableList(content);
+		this.endCursor = endCursor;
+		this.fetcher = fetcher;
+	}
+
+	public List<T> getContent() {
+		return this.content;
+	}
+
+	public boolean hasNext() {
+		return this.endCursor != null;
+	}
+
+	public CompletableFuture<AsyncPage<T>> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return this.fetcher.apply(this.endCursor);
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the number of entities written or deleted per Datastore commit for one domain
+ * type, overriding {@link EnableGcloudDatastoreRepositories#batchSize()}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface BatchSize {
+
+	/**
+	 * Maximum number of mutations per commit, at most
+	 * {@value SimpleGcloudDatastoreRepository#MAX_MUTATIONS_PER_COMMIT}.
+	 */
+	int value() default SimpleGcloudDatastoreRepository.DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Whether to size batches by the estimated serialized size of the entities instead,
+	 * filling each commit up to the 500-mutation and request-size limits.
+	 */
+	boolean adaptive() default false;
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.google.cloud.datastore.Key;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link InvalidationBus} that coalesces the invalidations published within a short
+ * delay and passes them on to another bus in batches. Keys invalidated more than once
+ * are sent once, and invalidating a whole kind drops its pending keys. Other nodes
+ * see a write at most the delay later.
+ */
+public class BatchingInvalidationBus implements InvalidationBus, AutoCloseable {
+
+	public static final int DEFAULT_MAX_BATCH_SIZE = SimpleGcloudDatastoreRepository.MAX_MUTATIONS_PER_COMMIT;
+
+	public static final long DEFAULT_MAX_DELAY_MILLIS = 20;
+
+	private final InvalidationBus delegate;
+
+	private final int maxBatchSize;
+
+	private final long maxDelayMillis;
+
+	private final ScheduledExecutorService scheduler = Executors
+			.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "gclouddatastore-invalidation");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	// Origin and kind to the pending keys, null for the whole kind
+	private Map<List<String>, Set<Key>> pending = new LinkedHashMap<>();
+
+	private int pendingKeys;
+
+	private ScheduledFuture<?> scheduledFlush;
+
+	public BatchingInvalidationBus(InvalidationBus delegate) {
+		this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+	}
+
+	public BatchingInvalidationBus(InvalidationBus delegate, int maxBatchSize,
+			long maxDelayMillis) {
+
+		Assert.notNull(delegate, "InvalidationBus must not be null!");
+		Assert.isTrue(maxBatchSize > 0, "Max batch size must be positive!");
+		Assert.isTrue(maxDelayMillis >= 0, "Max delay must not be negative!");
+
+		this.delegate = delegate;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+
+	@Override
+	public void publish(Invalidation invalidation) {
+		boolean full;
+		synchronized (this) {
+			List<String> source = Arrays.asList(invalidation.getOrigin(),
+					invalidation.getKind());
+			if (invalidation.isAll()) {
+				Set<Key> keys = this.pending.put(source, null);
+				if (keys != null) {
+					this.pendingKeys -= keys.size();
+				}
+			}
+			else if (!this.pending.containsKey(source)
+					|| this.pending.get(source) != null) {
+				Set<Key> keys = this.pending.computeIfAbsent(source,
+						s -> new LinkedHashSet<>());
+				for (Key key : invalidation.getKeys()) {
+					if (keys.add(key)) {
+						this.pendingKeys++;
+					}
+				}
+			}
+			full = this.pendingKeys >= this.maxBatchSize;
+			if (!full && this.scheduledFlush == null) {
+				this.scheduledFlush = this.scheduler.schedule(this::flush,
+						this.maxDelayMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (full) {
+			flush();
+		}
+	}
+
+	/**
+	 * Passes the pending invalidations on right away.
+	 */
+	public void flush() {
+		Map<List<String>, Set<Key>> flushed;
+		synchronized (this) {
+			flushed = this.pending;
+			this.pending = new LinkedHashMap<>();
+			this.pendingKeys = 0;
+			if (this.scheduledFlush != null) {
+				this.scheduledFlush.cancel(false);
+				this.scheduledFlush = null;
+			}
+		}
+		flushed.forEach((source, keys) -> {
+			if (keys == null) {
+				this.delegate.publish(Invalidation.ofKind(source.get(0), source.get(1)));
+				return;
+			}
+			List<Key> batch = new ArrayList<>(Math.min(keys.size(), this.maxBatchSize));
+			for (Key key : keys) {
+				batch.add(key);
+				if (batch.size() >= this.maxBatchSize) {
+					this.delegate.publish(
+							Invalidation.ofKeys(source.get(0), source.get(1), batch));
+					batch.clear();
+				}
+			}
+			if (!batch.isEmpty()) {
+				this.delegate
+						.publish(Invalidation.ofKeys(source.get(0), source.get(1), batch));
+			}
+		});
+	}
+
+	@Override
+	public void subscribe(Consumer<Invalidation> listener) {
+		this.delegate.subscribe(listener);
+	}
+
+	@Override
+	public void close() {
+		flush();
+		this.scheduler.shutdown();
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.google.cloud.datastore.ValueType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Per-class property metadata used by {@link Marshaller} and {@link Unmarshaller}.
+ * Instances are immutable and cached, so the marshalling hot path does no bean
+ * introspection.
+ */
+final class BeanMetadata {
+
+	private static final Logger log = LoggerFactory.getLogger(BeanMetadata.class);
+
+	private static final Map<Class<?>, BeanMetadata> cache = new ConcurrentReferenceHashMap<>();
+
+	private final List<Property> readableProperties;
+
+	private final Map<String, Property> properties;
+
+	private BeanMetadata(Class<?> beanClass) {
+		List<Property> readableProperties = new ArrayList<>();
+		Map<String, Property> properties = new HashMap<>();
+		for (PropertyDescriptor propertyDescriptor : BeanUtils
+				.getPropertyDescriptors(beanClass)) {
+			String name = propertyDescriptor.getName();
+			if ("class".equals(name))
+				continue;
+
+			Property property = new Property(propertyDescriptor);
+			properties.put(name, property);
+			if (property.isReadable()) {
+				readableProperties.add(property);
+			}
+		}
+		this.readableProperties = Collections.unmodifiableList(readableProperties);
+		this.properties = properties;
+	}
+
+	public static BeanMetadata of(Class<?> beanClass) {
+		BeanMetadata metadata = cache.get(beanClass);
+		if (metadata == null) {
+			metadata = new BeanMetadata(beanClass);
+			cache.put(beanClass, metadata);
+		}
+		return metadata;
+	}
+
+	public List<Property> getReadableProperties() {
+		return this.readableProperties;
+	}
+
+	public Property getProperty(String name) {
+		return this.properties.get(name);
+	}
+
+	static final class Property {
+
+		private final String name;
+
+		private final Class<?> type;
+
+		private final Function<Object, Object> getter;
+
+		private final BiConsumer<Object, Object> setter;
+
+		private final Map<ValueType, Unmarshaller.PropertyConverter> converters;
+
+		Property(PropertyDescriptor propertyDescriptor) {
+			this.name = propertyDescriptor.getName();
+			this.type = propertyDescriptor.getPropertyType();
+			Method readMethod = propertyDescriptor.getReadMethod();
+			Method writeMethod = propertyDescriptor.getWriteMethod();
+			this.getter = readMethod == null ? null : createGetter(readMethod);
+			this.setter = writeMethod == null ? null : createSetter(writeMethod);
+
+			Map<ValueType, Unmarshaller.PropertyConverter> converters = new EnumMap<>(
+					ValueType.class);
+			for (ValueType valueType : ValueType.values()) {
+				Unmarshaller.PropertyConverter converter = Unmarshaller
+						.resolveConverter(this, valueType);
+				if (converter != null) {
+					converters.put(valueType, converter);
+				}
+			}
+			this.converters = converters;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Class<?> getType() {
+			return this.type;
+		}
+
+		public boolean isReadable() {
+			return this.getter != null;
+		}
+
+		public boolean isWritable() {
+			return this.setter != null;
+		}
+
+		public Object getValue(Object bean) {
+			return this.getter.apply(bean);
+		}
+
+		public void setValue(Object bean, Object value) {
+			this.setter.accept(bean, value);
+		}
+
+		public Unmarshaller.PropertyConverter getConverter(ValueType valueType) {
+			return this.converters.get(valueType);
+		}
+
+		boolean isReflective() {
+			return this.getter instanceof ReflectiveAccessor
+					|| this.setter instanceof ReflectiveAccessor;
+		}
+	}
+
+	/**
+	 * Spins a {@link Function} that calls the getter directly, so the JIT can inline it
+	 * like hand-written code. Falls back to reflection where the lambda cannot link to
+	 * the method: non-public classes or methods, or classes not visible from this class
+	 * loader.
+	 */
+	private static Function<Object, Object> createGetter(Method method) {
+		if (canLink(method)) {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+						MethodType.methodType(Function.class),
+						MethodType.methodType(Object.class, Object.class),
+						lookup.unreflect(method),
+						MethodType.methodType(Object.class, method.getDeclaringClass()));
+				return createAccessor(callSite);
+			}
+			catch (IllegalAccessException | LambdaConversionException e) {
+				log.debug("Reading {} reflectively", method, e);
+			}
+		}
+		return new ReflectiveAccessor(method);
+	}
+
+	private static BiConsumer<Object, Object> createSetter(Method method) {
+		if (canLink(method)) {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept",
+						MethodType.methodType(BiConsumer.class),
+						MethodType.methodType(void.class, Object.class, Object.class),
+						lookup.unreflect(method),
+						MethodType.methodType(void.class, method.getDeclaringClass(),
+								ClassUtils.resolvePrimitiveIfNecessary(
+										method.getParameterTypes()[0])));
+				return createAccessor(callSite);
+			}
+			catch (IllegalAccessException | LambdaConversionException e) {
+				log.debug("Writing {} reflectively", method, e);
+			}
+		}
+		return new ReflectiveAccessor(method);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <A> A createAccessor(CallSite callSite) {
+		try {
+			return (A) callSite.getTarget().invoke();
+		}
+		catch (RuntimeException | Error e) {
+			throw e;
+		}
+		catch (Throwable e) {
+			// A factory without captured arguments throws nothing checked
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static boolean canLink(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		return Modifier.isPublic(method.getModifiers())
+				&& Modifier.isPublic(declaringClass.getModifiers())
+				&& ClassUtils.isVisible(declaringClass, BeanMetadata.class.getClassLoader());
+	}
+
+	private static final class ReflectiveAccessor
+			implements Function<Object, Object>, BiConsumer<Object, Object> {
+
+		private final Method method;
+
+		ReflectiveAccessor(Method method) {
+			ReflectionUtils.makeAccessible(method);
+			this.method = method;
+		}
+
+		@Override
+		public Object apply(Object bean) {
+			return ReflectionUtils.invokeMethod(this.method, bean);
+		}
+
+		@Override
+		public void accept(Object bean, Object value) {
+			ReflectionUtils.invokeMethod(this.method, bean, value);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On a domain type, keeps its entities read by id in an {@link EntityCache}, so
+ * repeated {@code findOne} and {@code findAll(Iterable)} calls skip the Datastore
+ * lookup. On a derived query method, keeps the keys of its results in a
+ * {@link QueryResultCache}, and reads their entities by key, through the entity cache
+ * of the domain type if it has one.
+ * <p>
+ * Saves and deletes through the repository update the caches; writes from other nodes
+ * are only seen once the cached entries expire, unless the repositories share an
+ * {@link InvalidationBus}.
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface Cached {
+
+	/**
+	 * Maximum number of cached entities, or results of a query method.
+	 */
+	int maxSize() default EntityCache.DEFAULT_MAX_SIZE;
+
+	/**
+	 * Time after which a cached entity is read, or a query run, again.
+	 */
+	long timeToLive() default EntityCache.DEFAULT_TIME_TO_LIVE_SECONDS;
+
+	/**
+	 * Time for which an id found not to exist is answered from the cache, 0 to always
+	 * look missing entities up again. Only used on domain types.
+	 */
+	long missTimeToLive() default 0;
+
+	TimeUnit timeUnit() default TimeUnit.SECONDS;
+}
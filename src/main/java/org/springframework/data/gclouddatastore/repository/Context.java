@@ -21,6 +21,7 @@ import java.util.Arrays;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Supplier;
 
 import com.google.cloud.datastore.PathElement;
 import lombok.AllArgsConstructor;
@@ -62,6 +63,25 @@ public class Context implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Wraps the supplier so that it runs with the ancestors of the calling thread, e.g.
+	 * when it is handed to an executor. They replace the ancestors of the thread running
+	 * it, which may be the calling thread itself, until it returns.
+	 */
+	public static <T> Supplier<T> propagate(Supplier<T> supplier) {
+		List<PathElement> ancestors = new ArrayList<>(getAncestors());
+		return () -> {
+			Deque<PathElement> saved = localAncestorsStack.get();
+			localAncestorsStack.set(new LinkedList<>(ancestors));
+			try {
+				return supplier.get();
+			}
+			finally {
+				localAncestorsStack.set(saved);
+			}
+		};
+	}
+
 	public static Deque<PathElement> getAncestors() {
 		return localAncestorsStack.get();
 	}
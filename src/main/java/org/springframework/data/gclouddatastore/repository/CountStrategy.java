@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.KeyQuery;
+
+/**
+ * Strategy for counting the results of a keys-only query. Used by
+ * {@link SimpleGcloudDatastoreRepository#count()} and by derived
+ * {@code countBy...} query methods.
+ */
+public interface CountStrategy {
+
+	long count(Datastore datastore, KeyQuery query);
+}
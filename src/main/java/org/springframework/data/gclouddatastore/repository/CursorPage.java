@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.List;
+
+import com.google.cloud.datastore.Cursor;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * {@link org.springframework.data.domain.Page} carrying the Datastore {@link Cursor}
+ * after its last element, so the next page is read without an offset scan.
+ */
+public class CursorPage<T> extends PageImpl<T> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Pageable pageable;
+
+	private final Cursor cursor;
+
+	public CursorPage(List<T> content, Pageable pageable, long total, Cursor cursor) {
+		super(content, pageable, total);
+		this.pageable = pageable;
+		this.cursor = cursor;
+	}
+
+	public Cursor getCursor() {
+		return this.cursor;
+	}
+
+	@Override
+	public Pageable nextPageable() {
+		return hasNext() ? new CursorPageable(getNumber() + 1, getSize(), getSort(),
+				this.cursor) : null;
+	}
+
+	@Override
+	public <S> CursorPage<S> map(Converter<? super T, ? extends S> converter) {
+		return new CursorPage<S>(getConvertedContent(converter), this.pageable,
+				getTotalElements(), this.cursor);
+	}
+}
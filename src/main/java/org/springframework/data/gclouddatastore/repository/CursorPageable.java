@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import com.google.cloud.datastore.Cursor;
+import lombok.EqualsAndHashCode;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+/**
+ * {@link PageRequest} that continues a query from a Datastore {@link Cursor} instead of
+ * skipping {@link #getOffset()} results. Obtained from
+ * {@link CursorSlice#nextPageable()} or rebuilt with {@link #fromToken(String, int)}
+ * from a {@link #toToken() token}, which carries the page number along with the
+ * cursor so a page knows its offset and total.
+ */
+@EqualsAndHashCode(callSuper = true)
+public class CursorPageable extends PageRequest {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String TOKEN_SEPARATOR = "-";
+
+	private final Cursor cursor;
+
+	public CursorPageable(int page, int size, Sort sort, Cursor cursor) {
+		super(page, size, sort);
+		this.cursor = cursor;
+	}
+
+	public static CursorPageable fromToken(String token, int size) {
+		return fromToken(token, size, null);
+	}
+
+	public static CursorPageable fromToken(String token, int size, Sort sort) {
+		int separator = token.indexOf(TOKEN_SEPARATOR);
+		Assert.isTrue(separator > 0, "Invalid page token!");
+
+		String cursor = token.substring(separator + 1);
+		return new CursorPageable(Integer.parseInt(token.substring(0, separator)), size,
+				sort, cursor.isEmpty() ? null : Cursor.fromUrlSafe(cursor));
+	}
+
+	public Cursor getCursor() {
+		return this.cursor;
+	}
+
+	/**
+	 * Returns the page number and the cursor as a URL safe token.
+	 */
+	public String toToken() {
+		return getPageNumber() + TOKEN_SEPARATOR
+				+ (this.cursor != null ? this.cursor.toUrlSafe() : "");
+	}
+}
@@ -113,4 +113,22 @@ public @interface EnableGcloudDatastoreRepositories {
 	 */
 	Class<?> repositoryBaseClass() default DefaultRepositoryBaseClass.class;
 
+	/**
+	 * Configures the number of entities written or deleted per Datastore commit, at most
+	 * {@value SimpleGcloudDatastoreRepository#MAX_MUTATIONS_PER_COMMIT}. Can be
+	 * overridden per domain type with {@link BatchSize}.
+	 *
+	 * @return
+	 */
+	int batchSize() default SimpleGcloudDatastoreRepository.DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Configures whether commits are sized by the estimated serialized size of the
+	 * entities, up to the Datastore mutation and request size limits, instead of by
+	 * {@link #batchSize()}.
+	 *
+	 * @return
+	 */
+	boolean adaptiveBatchSize() default false;
+
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+
+import org.springframework.util.Assert;
+
+/**
+ * Bounded cache of entities by their full, ancestor-qualified {@link Key}. Entries
+ * expire a fixed time after they were written; when the cache grows beyond its
+ * maximum size the expired entries are dropped first, then arbitrary ones. Lookups are
+ * lock-free. Subscribed to an {@link InvalidationBus}, the cache evicts what other
+ * nodes write; the repositories publish the writes of their own node.
+ * <p>
+ * With a miss time to live, keys found not to exist are remembered as well, so repeated
+ * lookups of missing entities are answered without a round trip until the miss
+ * expires or the entity is saved.
+ */
+public class EntityCache {
+
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	public static final long DEFAULT_TIME_TO_LIVE_SECONDS = 60;
+
+	private final ConcurrentMap<Key, CachedEntity> entities = new ConcurrentHashMap<>();
+
+	private final AtomicLong modifications = new AtomicLong();
+
+	private final int maxSize;
+
+	private final long timeToLiveNanos;
+
+	private final long missTimeToLiveNanos;
+
+	private final LongSupplier nanoTime;
+
+	private volatile String origin;
+
+	private volatile String kind;
+
+	public EntityCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS);
+	}
+
+	public EntityCache(int maxSize, long timeToLive, TimeUnit timeUnit) {
+		this(maxSize, timeToLive, 0, timeUnit);
+	}
+
+	/**
+	 * @param missTimeToLive how long a key found not to exist is remembered, 0 to not
+	 * cache misses
+	 */
+	public EntityCache(int maxSize, long timeToLive, long missTimeToLive,
+			TimeUnit timeUnit) {
+		this(maxSize, timeToLive, missTimeToLive, timeUnit, System::nanoTime);
+	}
+
+	EntityCache(int maxSize, long timeToLive, long missTimeToLive, TimeUnit timeUnit,
+			LongSupplier nanoTime) {
+
+		Assert.isTrue(maxSize > 0, "Max size must be positive!");
+		Assert.isTrue(timeToLive > 0, "Time to live must be positive!");
+		Assert.isTrue(missTimeToLive >= 0, "Miss time to live must not be negative!");
+
+		this.maxSize = maxSize;
+		this.timeToLiveNanos = timeUnit.toNanos(timeToLive);
+		this.missTimeToLiveNanos = timeUnit.toNanos(missTimeToLive);
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * Applies the invalidations of the kind published on the bus, except the ones of
+	 * this node, identified by the origin.
+	 */
+	public void subscribe(InvalidationBus invalidationBus, String origin, String kind) {
+		Assert.notNull(invalidationBus, "InvalidationBus must not be null!");
+		Assert.notNull(origin, "Origin must not be null!");
+		Assert.notNull(kind, "Kind must not be null!");
+
+		this.origin = origin;
+		this.kind = kind;
+		invalidationBus.subscribe(this::apply);
+	}
+
+	/**
+	 * Returns the cached entity, or {@code null} if it is not cached or expired.
+	 */
+	public Entity get(Key key) {
+		CachedEntity cached = lookup(key);
+		return cached != null ? cached.entity : null;
+	}
+
+	/**
+	 * Returns whether the entity is known not to exist.
+	 */
+	public boolean isMissing(Key key) {
+		CachedEntity cached = lookup(key);
+		return cached != null && cached.entity == null;
+	}
+
+	/**
+	 * Returns a stamp to pass to {@link #putIfUnmodified(Entity, long)} after reading
+	 * an entity from Datastore.
+	 */
+	public long stamp() {
+		return this.modifications.get();
+	}
+
+	/**
+	 * Caches an entity read from Datastore unless the cache was modified since the
+	 * stamp was taken, in which case the entity may already be stale.
+	 */
+	public void putIfUnmodified(Entity entity, long stamp) {
+		storeIfUnmodified(entity.getKey(), entity, this.timeToLiveNanos, stamp);
+	}
+
+	/**
+	 * Remembers that a lookup found no entity for the key, unless misses are not
+	 * cached or the cache was modified since the stamp was taken.
+	 */
+	public void putMissIfUnmodified(Key key, long stamp) {
+		if (this.missTimeToLiveNanos > 0) {
+			storeIfUnmodified(key, null, this.missTimeToLiveNanos, stamp);
+		}
+	}
+
+	/**
+	 * Caches an entity just written to Datastore.
+	 */
+	public void put(Entity entity) {
+		this.modifications.incrementAndGet();
+		store(entity.getKey(), entity, this.timeToLiveNanos);
+	}
+
+	public void invalidate(Key key) {
+		this.modifications.incrementAndGet();
+		this.entities.remove(key);
+	}
+
+	public void invalidateAll() {
+		this.modifications.incrementAndGet();
+		this.entities.clear();
+	}
+
+	public int size() {
+		return this.entities.size();
+	}
+
+	private void apply(Invalidation invalidation) {
+		if (this.origin.equals(invalidation.getOrigin())
+				|| !invalidation.getKind().equals(this.kind)) {
+			return;
+		}
+		this.modifications.incrementAndGet();
+		if (invalidation.isAll()) {
+			this.entities.clear();
+		}
+		else {
+			invalidation.getKeys().forEach(this.entities::remove);
+		}
+	}
+
+	private CachedEntity lookup(Key key) {
+		CachedEntity cached = this.entities.get(key);
+		if (cached == null) {
+			return null;
+		}
+		if (cached.isExpired(this.nanoTime.getAsLong())) {
+			this.entities.remove(key, cached);
+			return null;
+		}
+		return cached;
+	}
+
+	private void storeIfUnmodified(Key key, Entity entity, long timeToLiveNanos,
+			long stamp) {
+
+		if (this.modifications.get() != stamp) {
+			return;
+		}
+		CachedEntity stored = store(key, entity, timeToLiveNanos);
+		// Writers count a modification before they touch the map, so one that raced
+		// with the store shows here and its entry must not be shadowed
+		if (this.modifications.get() != stamp) {
+			this.entities.remove(key, stored);
+		}
+	}
+
+	private CachedEntity store(Key key, Entity entity, long timeToLiveNanos) {
+		long now = this.nanoTime.getAsLong();
+		CachedEntity cached = new CachedEntity(entity, now + timeToLiveNanos);
+		this.entities.put(key, cached);
+		if (this.entities.size() > this.maxSize) {
+			evict(now);
+		}
+		return cached;
+	}
+
+	private void evict(long now) {
+		this.entities.values().removeIf(cached -> cached.isExpired(now));
+		// Make room for a tenth more, so the next puts do not scan again
+		Iterator<CachedEntity> iterator = this.entities.values().iterator();
+		int target = this.maxSize - Math.max(1, this.maxSize / 10);
+		while (this.entities.size() > target && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	private static final class CachedEntity {
+
+		// null for a miss
+		final Entity entity;
+
+		final long expiresAt;
+
+		CachedEntity(Entity entity, long expiresAt) {
+			this.entity = entity;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired(long now) {
+			return now - this.expiresAt >= 0;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.List;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.google.cloud.datastore.BlobValue;
+import com.google.cloud.datastore.EntityValue;
+import com.google.cloud.datastore.IncompleteKey;
+import com.google.cloud.datastore.KeyValue;
+import com.google.cloud.datastore.ListValue;
+import com.google.cloud.datastore.PathElement;
+import com.google.cloud.datastore.StringValue;
+import com.google.cloud.datastore.Value;
+
+/**
+ * Estimates the serialized size of entities, to keep commits under the Datastore
+ * request size limit.
+ */
+final class EntitySizeEstimator {
+
+	/**
+	 * Budget for the entities of one commit: the 10 MiB request limit less headroom for
+	 * estimation error and request overhead.
+	 */
+	static final long MAX_BATCH_BYTES = 9L * 1024 * 1024;
+
+	private static final int FIELD_OVERHEAD = 4;
+
+	private static final int SCALAR_SIZE = 12;
+
+	private EntitySizeEstimator() {
+	}
+
+	static long estimate(BaseEntity<? extends IncompleteKey> entity) {
+		long size = entity.hasKey() ? estimate(entity.getKey()) : 0;
+		for (String name : entity.getNames()) {
+			size += FIELD_OVERHEAD + utf8Length(name) + estimate(entity.getValue(name));
+		}
+		return size;
+	}
+
+	private static long estimate(Value<?> value) {
+		switch (value.getType()) {
+		case BLOB:
+			return FIELD_OVERHEAD + ((BlobValue) value).get().getLength();
+		case STRING:
+			return FIELD_OVERHEAD + utf8Length(((StringValue) value).get());
+		case ENTITY:
+			return FIELD_OVERHEAD + estimate(((EntityValue) value).get());
+		case KEY:
+			return FIELD_OVERHEAD + estimate(((KeyValue) value).get());
+		case LIST:
+			long size = FIELD_OVERHEAD;
+			for (Value<?> element : (List<? extends Value<?>>) ((ListValue) value)
+					.get()) {
+				size += estimate(element);
+			}
+			return size;
+		default:
+			return SCALAR_SIZE;
+		}
+	}
+
+	private static long estimate(IncompleteKey key) {
+		long size = FIELD_OVERHEAD + utf8Length(key.getProjectId())
+				+ utf8Length(key.getNamespace()) + utf8Length(key.getKind())
+				+ SCALAR_SIZE;
+		for (PathElement ancestor : key.getAncestors()) {
+			size += FIELD_OVERHEAD + utf8Length(ancestor.getKind())
+					+ (ancestor.hasName() ? utf8Length(ancestor.getName()) : SCALAR_SIZE);
+		}
+		return size;
+	}
+
+	private static int utf8Length(String string) {
+		if (string == null) {
+			return 0;
+		}
+		int length = 0;
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				length += 1;
+			}
+			else if (c < 0x800) {
+				length += 2;
+			}
+			else if (Character.isHighSurrogate(c)) {
+				length += 4;
+				i++;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+}
@@ -17,9 +17,11 @@
 package org.springframework.data.gclouddatastore.repository;
 
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.StructuredQuery;
 
 import org.springframework.data.repository.CrudRepository;
 
@@ -27,4 +29,29 @@ public interface GcloudDatastoreRepository<T, ID extends Serializable>
 		extends CrudRepository<T, ID> {
 
 	Iterable<T> query(Query<Entity> query);
+
+	/**
+	 * Streams the given query page by page without blocking the caller. Each page is
+	 * fetched on the repository's async executor when requested.
+	 */
+	CompletableFuture<AsyncPage<T>> queryAsync(StructuredQuery<Entity> query,
+			int pageSize);
+
+	CompletableFuture<AsyncPage<T>> findAllAsync(int pageSize);
+
+	CompletableFuture<T> findOneAsync(ID id);
+
+	CompletableFuture<Iterable<T>> findAllAsync(Iterable<ID> ids);
+
+	CompletableFuture<Boolean> existsAsync(ID id);
+
+	CompletableFuture<Long> countAsync();
+
+	<S extends T> CompletableFuture<S> saveAsync(S entity);
+
+	<S extends T> CompletableFuture<Iterable<S>> saveAsync(Iterable<S> entities);
+
+	CompletableFuture<Void> deleteAsync(ID id);
+
+	CompletableFuture<Void> deleteAsync(Iterable<? extends T> entities);
 }
@@ -16,6 +16,9 @@
 
 package org.springframework.data.gclouddatastore.repository;
 
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.data.repository.config.AnnotationRepositoryConfigurationSource;
 import org.springframework.data.repository.config.RepositoryConfigurationExtensionSupport;
 
 public class GcloudDatastoreRepositoryConfigurationExtension
@@ -30,4 +33,14 @@ public class GcloudDatastoreRepositoryConfigurationExtension
 	protected String getModulePrefix() {
 		return "gcloudds";
 	}
+
+	@Override
+	public void postProcess(BeanDefinitionBuilder builder,
+			AnnotationRepositoryConfigurationSource config) {
+
+		AnnotationAttributes attributes = config.getAttributes();
+		builder.addPropertyValue("batchSize", attributes.getNumber("batchSize"));
+		builder.addPropertyValue("adaptiveBatchSize",
+				attributes.getBoolean("adaptiveBatchSize"));
+	}
 }
@@ -18,19 +18,20 @@ package org.springframework.data.gclouddatastore.repository;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
 
 import com.google.cloud.datastore.Datastore;
 import com.google.cloud.datastore.DatastoreOptions;
-import com.google.cloud.datastore.Entity;
-import com.google.cloud.datastore.QueryResults;
-import com.google.cloud.datastore.StructuredQuery;
 
-import org.springframework.data.gclouddatastore.repository.query.GcloudDatastoreQueryCreator;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.data.gclouddatastore.repository.query.GcloudDatastoreQueryMethod;
+import org.springframework.data.gclouddatastore.repository.query.PartTreeGcloudDatastoreQuery;
 import org.springframework.data.projection.ProjectionFactory;
 import org.springframework.data.repository.core.EntityInformation;
 import org.springframework.data.repository.core.NamedQueries;
@@ -38,20 +39,132 @@ import org.springframework.data.repository.core.RepositoryInformation;
 import org.springframework.data.repository.core.RepositoryMetadata;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
 import org.springframework.data.repository.query.EvaluationContextProvider;
-import org.springframework.data.repository.query.ParametersParameterAccessor;
 import org.springframework.data.repository.query.QueryLookupStrategy;
 import org.springframework.data.repository.query.QueryLookupStrategy.Key;
 import org.springframework.data.repository.query.QueryMethod;
 import org.springframework.data.repository.query.RepositoryQuery;
-import org.springframework.data.repository.query.ResultProcessor;
-import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.util.Assert;
 
 public class GcloudDatastoreRepositoryFactory extends RepositoryFactorySupport {
 
+	/**
+	 * Identifies this node on the invalidation bus, so its caches ignore the writes its
+	 * repositories publish.
+	 */
+	static final String INVALIDATION_ORIGIN = UUID.randomUUID().toString();
+
+	/**
+	 * The first of each set of equal options, whose {@link DatastoreOptions#getService()
+	 * service} is created once and shared by the factories given any of them.
+	 */
+	private static final Map<DatastoreOptions, DatastoreOptions> SHARED_OPTIONS = new ConcurrentHashMap<>();
+
+	private static final Map<DatastoreOptions, KeyFactoryCache> SHARED_KEY_FACTORY_CACHES = new ConcurrentHashMap<>();
+
 	DatastoreOptions datastoreOptions = DatastoreOptions.getDefaultInstance();
 
+	Datastore datastore;
+
+	KeyFactoryCache keyFactoryCache;
+
+	CountStrategy countStrategy = new OffsetCountStrategy();
+
+	Executor lookupExecutor;
+
+	int deleteAllConcurrency = 1;
+
+	int deleteAllBatchSize = SimpleGcloudDatastoreRepository.MAX_MUTATIONS_PER_COMMIT;
+
+	LongConsumer deleteAllProgressListener;
+
+	int batchSize = SimpleGcloudDatastoreRepository.DEFAULT_BATCH_SIZE;
+
+	boolean adaptiveBatchSize;
+
+	Executor saveExecutor;
+
+	Executor asyncExecutor;
+
+	int queryBatchSize;
+
+	int subQueryConcurrency = PartTreeGcloudDatastoreQuery.DEFAULT_SUB_QUERY_CONCURRENCY;
+
+	IndexAdvisor indexAdvisor;
+
+	InvalidationBus invalidationBus;
+
+	private final Map<Class<?>, EntityCache> entityCaches = new ConcurrentHashMap<>();
+
+	private final Map<Class<?>, Collection<QueryResultCache>> queryResultCaches = new ConcurrentHashMap<>();
+
+	int saveMaxPendingBatches = SimpleGcloudDatastoreRepository.DEFAULT_SAVE_MAX_PENDING_BATCHES;
+
 	public GcloudDatastoreRepositoryFactory(DatastoreOptions datastoreOptions) {
-		this.datastoreOptions = datastoreOptions;
+		Assert.notNull(datastoreOptions, "DatastoreOptions must not be null!");
+
+		this.datastoreOptions = SHARED_OPTIONS.computeIfAbsent(datastoreOptions,
+				options -> options);
+		this.datastore = this.datastoreOptions.getService();
+		this.keyFactoryCache = SHARED_KEY_FACTORY_CACHES.computeIfAbsent(
+				this.datastoreOptions, options -> new KeyFactoryCache(this.datastore));
+	}
+
+	public void setCountStrategy(CountStrategy countStrategy) {
+		Assert.notNull(countStrategy, "CountStrategy must not be null!");
+
+		this.countStrategy = countStrategy;
+	}
+
+	public void setLookupExecutor(Executor lookupExecutor) {
+		this.lookupExecutor = lookupExecutor;
+	}
+
+	public void setDeleteAllConcurrency(int deleteAllConcurrency) {
+		this.deleteAllConcurrency = deleteAllConcurrency;
+	}
+
+	public void setDeleteAllBatchSize(int deleteAllBatchSize) {
+		this.deleteAllBatchSize = deleteAllBatchSize;
+	}
+
+	public void setDeleteAllProgressListener(LongConsumer deleteAllProgressListener) {
+		this.deleteAllProgressListener = deleteAllProgressListener;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+		this.adaptiveBatchSize = adaptiveBatchSize;
+	}
+
+	public void setSaveExecutor(Executor saveExecutor) {
+		this.saveExecutor = saveExecutor;
+	}
+
+	public void setAsyncExecutor(Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	public void setQueryBatchSize(int queryBatchSize) {
+		this.queryBatchSize = queryBatchSize;
+	}
+
+	public void setSubQueryConcurrency(int subQueryConcurrency) {
+		this.subQueryConcurrency = subQueryConcurrency;
+	}
+
+	public void setIndexAdvisor(IndexAdvisor indexAdvisor) {
+		this.indexAdvisor = indexAdvisor;
+	}
+
+	public void setInvalidationBus(InvalidationBus invalidationBus) {
+		this.invalidationBus = invalidationBus;
+	}
+
+	public void setSaveMaxPendingBatches(int saveMaxPendingBatches) {
+		this.saveMaxPendingBatches = saveMaxPendingBatches;
 	}
 
 	@Override
@@ -70,8 +183,54 @@ public class GcloudDatastoreRepositoryFactory extends RepositoryFactorySupport {
 	protected Object getTargetRepository(RepositoryInformation information) {
 		EntityInformation<?, Serializable> entityInformation = getEntityInformation(
 				information.getDomainType());
-		return getTargetRepositoryViaReflection(information, entityInformation,
-				this.datastoreOptions);
+		Object repository = getTargetRepositoryViaReflection(information,
+				entityInformation, this.datastoreOptions);
+		if (repository instanceof SimpleGcloudDatastoreRepository) {
+			SimpleGcloudDatastoreRepository<?, ?> simpleRepository = (SimpleGcloudDatastoreRepository<?, ?>) repository;
+			simpleRepository.setKeyFactoryCache(this.keyFactoryCache);
+			simpleRepository.setCountStrategy(this.countStrategy);
+			simpleRepository.setLookupExecutor(this.lookupExecutor);
+			simpleRepository.setDeleteAllConcurrency(this.deleteAllConcurrency);
+			simpleRepository.setDeleteAllBatchSize(this.deleteAllBatchSize);
+			simpleRepository
+					.setDeleteAllProgressListener(this.deleteAllProgressListener);
+			simpleRepository.setSaveExecutor(this.saveExecutor);
+			simpleRepository.setSaveMaxPendingBatches(this.saveMaxPendingBatches);
+			simpleRepository.setAsyncExecutor(this.asyncExecutor);
+			simpleRepository.setQueryBatchSize(this.queryBatchSize);
+			BatchSize batchSize = AnnotationUtils
+					.findAnnotation(information.getDomainType(), BatchSize.class);
+			Cached cached = AnnotationUtils.findAnnotation(information.getDomainType(),
+					Cached.class);
+			if (cached != null) {
+				EntityCache entityCache = new EntityCache(cached.maxSize(),
+						cached.timeToLive(), cached.missTimeToLive(), cached.timeUnit());
+				if (this.invalidationBus != null) {
+					entityCache.subscribe(this.invalidationBus, INVALIDATION_ORIGIN,
+							information.getDomainType().getSimpleName());
+				}
+				simpleRepository.setEntityCache(entityCache);
+				this.entityCaches.put(information.getDomainType(), entityCache);
+			}
+			simpleRepository.setQueryResultCaches(
+					getQueryResultCaches(information.getDomainType()));
+			simpleRepository.setInvalidationBus(this.invalidationBus,
+					INVALIDATION_ORIGIN);
+			if (batchSize != null) {
+				simpleRepository.setBatchSize(batchSize.value());
+				simpleRepository.setAdaptiveBatchSize(batchSize.adaptive());
+			}
+			else {
+				simpleRepository.setBatchSize(this.batchSize);
+				simpleRepository.setAdaptiveBatchSize(this.adaptiveBatchSize);
+			}
+		}
+		return repository;
+	}
+
+	private Collection<QueryResultCache> getQueryResultCaches(Class<?> domainType) {
+		return this.queryResultCaches.computeIfAbsent(domainType,
+				type -> new CopyOnWriteArrayList<>());
 	}
 
 	@Override
@@ -84,96 +243,33 @@ public class GcloudDatastoreRepositoryFactory extends RepositoryFactorySupport {
 					RepositoryMetadata metadata, ProjectionFactory factory,
 					NamedQueries namedQueries) {
 
-				QueryMethod queryMethod = new QueryMethod(method, metadata, factory);
-
-				ResultProcessor resultProcessor = queryMethod.getResultProcessor();
-				Class<?> domainType = resultProcessor.getReturnedType().getDomainType();
-				PartTree tree = new PartTree(method.getName(), domainType);
-				return new RepositoryQuery() {
-					@Override
-					public Object execute(Object[] parameters) {
-						GcloudDatastoreQueryCreator queryCreator = new GcloudDatastoreQueryCreator(
-								tree,
-								new ParametersParameterAccessor(
-										queryMethod.getParameters(), parameters),
-								datastoreOptions);
-						StructuredQuery.Builder<Entity> queryBuilder = queryCreator
-								.createQuery();
-						queryBuilder.setKind(domainType.getSimpleName());
-
-						Unmarshaller unmarshaller = new Unmarshaller();
-						Datastore datastore = datastoreOptions.getService();
-						QueryResults<Entity> results = datastore
-								.run(queryBuilder.build());
-
-						try {
-							if (queryMethod.isCollectionQuery()) {
-								List<Object> result = new ArrayList<Object>();
-								while (results.hasNext()) {
-									Object entity = domainType.newInstance();
-									unmarshaller.unmarshalToObject(results.next(),
-											entity);
-									result.add(entity);
-								}
-								return resultProcessor.processResult(result);
-							}
-							else if (queryMethod.isStreamQuery()) {
-
-								Iterable<Object> iterable = new Iterable<Object>() {
-									@Override
-									public Iterator<Object> iterator() {
-										return new Iterator<Object>() {
-											@Override
-											public boolean hasNext() {
-												return results.hasNext();
-											}
-
-											@Override
-											public Object next() {
-												try {
-													Object entity = domainType
-															.newInstance();
-													unmarshaller.unmarshalToObject(
-															results.next(), entity);
-													return entity;
-												}
-												catch (InstantiationException
-														| IllegalAccessException e) {
-													throw new IllegalStateException(e);
-												}
-											}
-										};
-									}
-								};
-								Stream<Object> result = StreamSupport
-										.stream(iterable.spliterator(), false);
-								return resultProcessor.processResult(result);
-							}
-							else if (queryMethod.isQueryForEntity()) {
-								Object result;
-								if (!results.hasNext()) {
-									result = null;
-								}
-								else {
-									result = domainType.newInstance();
-									unmarshaller.unmarshalToObject(results.next(),
-											result);
-								}
-								return resultProcessor.processResult(result);
-							}
-							throw new UnsupportedOperationException(
-									"Query method not supported.");
-						}
-						catch (InstantiationException | IllegalAccessException e) {
-							throw new IllegalStateException(e);
-						}
-					}
-
-					@Override
-					public QueryMethod getQueryMethod() {
-						return queryMethod;
+				QueryMethod queryMethod = new GcloudDatastoreQueryMethod(method, metadata,
+						factory);
+				PartTreeGcloudDatastoreQuery query = new PartTreeGcloudDatastoreQuery(
+						queryMethod, datastore, keyFactoryCache, countStrategy,
+						asyncExecutor != null ? asyncExecutor
+								: SimpleGcloudDatastoreRepository.getDefaultAsyncExecutor());
+				query.setQueryBatchSize(queryBatchSize);
+				query.setSubQueryConcurrency(subQueryConcurrency);
+				Cached cached = AnnotationUtils.findAnnotation(method, Cached.class);
+				if (cached != null) {
+					QueryResultCache resultCache = new QueryResultCache(cached.maxSize(),
+							cached.timeToLive(), cached.timeUnit());
+					if (invalidationBus != null) {
+						resultCache.subscribe(invalidationBus, INVALIDATION_ORIGIN,
+								metadata.getDomainType().getSimpleName());
 					}
-				};
+					getQueryResultCaches(metadata.getDomainType()).add(resultCache);
+					query.setResultCache(resultCache);
+					query.setEntityCache(entityCaches.get(metadata.getDomainType()));
+				}
+				if (indexAdvisor != null) {
+					indexAdvisor.register(
+							metadata.getRepositoryInterface().getSimpleName() + "."
+									+ method.getName(),
+							query.getRequiredIndexes(indexAdvisor.isAncestorQueries()));
+				}
+				return query;
 			}
 		};
 	}
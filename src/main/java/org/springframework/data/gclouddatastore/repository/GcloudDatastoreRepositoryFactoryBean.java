@@ -17,9 +17,12 @@
 package org.springframework.data.gclouddatastore.repository;
 
 import java.io.Serializable;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
 
 import com.google.cloud.datastore.DatastoreOptions;
 
+import org.springframework.data.gclouddatastore.repository.query.PartTreeGcloudDatastoreQuery;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
 import org.springframework.data.repository.core.support.RepositoryFactorySupport;
@@ -29,6 +32,34 @@ public class GcloudDatastoreRepositoryFactoryBean<T extends Repository<S, ID>, S
 
 	DatastoreOptions datastoreOptions;
 
+	CountStrategy countStrategy;
+
+	Executor lookupExecutor;
+
+	int deleteAllConcurrency = 1;
+
+	int deleteAllBatchSize = SimpleGcloudDatastoreRepository.MAX_MUTATIONS_PER_COMMIT;
+
+	LongConsumer deleteAllProgressListener;
+
+	int batchSize = SimpleGcloudDatastoreRepository.DEFAULT_BATCH_SIZE;
+
+	boolean adaptiveBatchSize;
+
+	Executor saveExecutor;
+
+	Executor asyncExecutor;
+
+	int queryBatchSize;
+
+	int subQueryConcurrency = PartTreeGcloudDatastoreQuery.DEFAULT_SUB_QUERY_CONCURRENCY;
+
+	IndexAdvisor indexAdvisor;
+
+	InvalidationBus invalidationBus;
+
+	int saveMaxPendingBatches = SimpleGcloudDatastoreRepository.DEFAULT_SAVE_MAX_PENDING_BATCHES;
+
 	public GcloudDatastoreRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
 		super(repositoryInterface);
 		this.datastoreOptions = DatastoreOptions.getDefaultInstance();
@@ -41,8 +72,82 @@ public class GcloudDatastoreRepositoryFactoryBean<T extends Repository<S, ID>, S
 		this.datastoreOptions = datastoreOptions;
 	}
 
+	public void setCountStrategy(CountStrategy countStrategy) {
+		this.countStrategy = countStrategy;
+	}
+
+	public void setLookupExecutor(Executor lookupExecutor) {
+		this.lookupExecutor = lookupExecutor;
+	}
+
+	public void setDeleteAllConcurrency(int deleteAllConcurrency) {
+		this.deleteAllConcurrency = deleteAllConcurrency;
+	}
+
+	public void setDeleteAllBatchSize(int deleteAllBatchSize) {
+		this.deleteAllBatchSize = deleteAllBatchSize;
+	}
+
+	public void setDeleteAllProgressListener(LongConsumer deleteAllProgressListener) {
+		this.deleteAllProgressListener = deleteAllProgressListener;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+		this.adaptiveBatchSize = adaptiveBatchSize;
+	}
+
+	public void setSaveExecutor(Executor saveExecutor) {
+		this.saveExecutor = saveExecutor;
+	}
+
+	public void setAsyncExecutor(Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	public void setQueryBatchSize(int queryBatchSize) {
+		this.queryBatchSize = queryBatchSize;
+	}
+
+	public void setSubQueryConcurrency(int subQueryConcurrency) {
+		this.subQueryConcurrency = subQueryConcurrency;
+	}
+
+	public void setIndexAdvisor(IndexAdvisor indexAdvisor) {
+		this.indexAdvisor = indexAdvisor;
+	}
+
+	public void setInvalidationBus(InvalidationBus invalidationBus) {
+		this.invalidationBus = invalidationBus;
+	}
+
+	public void setSaveMaxPendingBatches(int saveMaxPendingBatches) {
+		this.saveMaxPendingBatches = saveMaxPendingBatches;
+	}
+
 	@Override
 	protected RepositoryFactorySupport createRepositoryFactory() {
-		return new GcloudDatastoreRepositoryFactory(this.datastoreOptions);
+		GcloudDatastoreRepositoryFactory factory = new GcloudDatastoreRepositoryFactory(
+				this.datastoreOptions);
+		if (this.countStrategy != null) {
+			factory.setCountStrategy(this.countStrategy);
+		}
+		factory.setLookupExecutor(this.lookupExecutor);
+		factory.setDeleteAllConcurrency(this.deleteAllConcurrency);
+		factory.setDeleteAllBatchSize(this.deleteAllBatchSize);
+		factory.setDeleteAllProgressListener(this.deleteAllProgressListener);
+		factory.setBatchSize(this.batchSize);
+		factory.setAdaptiveBatchSize(this.adaptiveBatchSize);
+		factory.setSaveExecutor(this.saveExecutor);
+		factory.setSaveMaxPendingBatches(this.saveMaxPendingBatches);
+		factory.setAsyncExecutor(this.asyncExecutor);
+		factory.setQueryBatchSize(this.queryBatchSize);
+		factory.setSubQueryConcurrency(this.subQueryConcurrency);
+		factory.setIndexAdvisor(this.indexAdvisor);
+		factory.setInvalidationBus(this.invalidationBus);
+		return factory;
 	}
 }
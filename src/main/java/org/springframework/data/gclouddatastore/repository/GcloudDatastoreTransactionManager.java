@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.DatastoreOptions;
+import com.google.cloud.datastore.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.InvalidIsolationLevelException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * {@link org.springframework.transaction.PlatformTransactionManager} that binds a
+ * Datastore {@link Transaction} to the thread. Repositories with equal
+ * {@link DatastoreOptions} read entities by key through it and buffer their saves and
+ * deletes in it, so all writes of a transaction are sent with the single commit.
+ * <p>
+ * Queries do not run in the transaction, since Datastore only allows ancestor queries
+ * there, and neither do the asynchronous repository methods, which run on other
+ * threads. Datastore transactions are serializable and limited to 25 entity groups and
+ * {@value SimpleGcloudDatastoreRepository#MAX_MUTATIONS_PER_COMMIT} mutations; a
+ * write that would exceed the mutations fails right away rather than at commit. A
+ * timeout is checked by every repository operation and before the commit. Repository
+ * caches are invalidated once the commit succeeded.
+ */
+public class GcloudDatastoreTransactionManager extends AbstractPlatformTransactionManager {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(GcloudDatastoreTransactionManager.class);
+
+	private static final long serialVersionUID = 1L;
+
+	private final DatastoreOptions datastoreOptions;
+
+	private transient Datastore datastore;
+
+	public GcloudDatastoreTransactionManager() {
+		this(DatastoreOptions.getDefaultInstance());
+	}
+
+	public GcloudDatastoreTransactionManager(DatastoreOptions datastoreOptions) {
+		Assert.notNull(datastoreOptions, "DatastoreOptions must not be null!");
+
+		this.datastoreOptions = datastoreOptions;
+	}
+
+	/**
+	 * Returns the transaction bound to the current thread for the given options, or
+	 * {@code null} outside of a transaction.
+	 */
+	public static Transaction getCurrentTransaction(DatastoreOptions datastoreOptions) {
+		TransactionHolder holder = getTransactionHolder(datastoreOptions);
+		return holder != null ? holder.getTransaction() : null;
+	}
+
+	static TransactionHolder getTransactionHolder(DatastoreOptions datastoreOptions) {
+		return (TransactionHolder) TransactionSynchronizationManager
+				.getResource(datastoreOptions);
+	}
+
+	@Override
+	protected Object doGetTransaction() {
+		TransactionObject transactionObject = new TransactionObject();
+		transactionObject.holder = (TransactionHolder) TransactionSynchronizationManager
+				.getResource(this.datastoreOptions);
+		return transactionObject;
+	}
+
+	@Override
+	protected boolean isExistingTransaction(Object transaction) {
+		return ((TransactionObject) transaction).holder != null;
+	}
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition) {
+		int isolationLevel = definition.getIsolationLevel();
+		if (isolationLevel != TransactionDefinition.ISOLATION_DEFAULT
+				&& isolationLevel != TransactionDefinition.ISOLATION_SERIALIZABLE) {
+			throw new InvalidIsolationLevelException(
+					"Datastore transactions are always serializable");
+		}
+
+		TransactionHolder holder;
+		try {
+			holder = new TransactionHolder(getDatastore().newTransaction());
+		}
+		catch (DatastoreException e) {
+			throw new CannotCreateTransactionException(
+					"Could not begin Datastore transaction", e);
+		}
+		int timeout = determineTimeout(definition);
+		if (timeout != TransactionDefinition.TIMEOUT_DEFAULT) {
+			holder.setTimeoutInSeconds(timeout);
+		}
+		holder.setSynchronizedWithTransaction(true);
+		((TransactionObject) transaction).holder = holder;
+		TransactionSynchronizationManager.bindResource(this.datastoreOptions, holder);
+	}
+
+	@Override
+	protected void doCommit(DefaultTransactionStatus status) {
+		TransactionHolder holder = ((TransactionObject) status.getTransaction()).holder;
+		try {
+			holder.getTransaction().commit();
+		}
+		catch (DatastoreException e) {
+			throw new TransactionSystemException("Could not commit Datastore transaction",
+					e);
+		}
+		holder.runAfterCommit();
+	}
+
+	@Override
+	protected void doRollback(DefaultTransactionStatus status) {
+		TransactionHolder holder = ((TransactionObject) status.getTransaction()).holder;
+		try {
+			if (holder.transaction.isActive()) {
+				holder.transaction.rollback();
+			}
+		}
+		catch (DatastoreException e) {
+			throw new TransactionSystemException(
+					"Could not roll back Datastore transaction", e);
+		}
+	}
+
+	@Override
+	protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+		((TransactionObject) status.getTransaction()).holder.setRollbackOnly();
+	}
+
+	@Override
+	protected Object doSuspend(Object transaction) {
+		((TransactionObject) transaction).holder = null;
+		return TransactionSynchronizationManager.unbindResource(this.datastoreOptions);
+	}
+
+	@Override
+	protected void doResume(Object transaction, Object suspendedResources) {
+		TransactionSynchronizationManager.bindResource(this.datastoreOptions,
+				suspendedResources);
+	}
+
+	@Override
+	protected void doCleanupAfterCompletion(Object transaction) {
+		TransactionSynchronizationManager.unbindResource(this.datastoreOptions);
+		TransactionHolder holder = ((TransactionObject) transaction).holder;
+		// A failed commit leaves the transaction open
+		if (holder.transaction.isActive()) {
+			try {
+				holder.transaction.rollback();
+			}
+			catch (DatastoreException e) {
+				log.debug("Could not roll back Datastore transaction", e);
+			}
+		}
+		holder.clear();
+	}
+
+	private Datastore getDatastore() {
+		if (this.datastore == null) {
+			this.datastore = this.datastoreOptions.getService();
+		}
+		return this.datastore;
+	}
+
+	private static final class TransactionObject implements SmartTransactionObject {
+
+		TransactionHolder holder;
+
+		@Override
+		public boolean isRollbackOnly() {
+			return this.holder != null && this.holder.isRollbackOnly();
+		}
+
+		@Override
+		public void flush() {
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.google.cloud.datastore.StructuredQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.io.Resource;
+import org.springframework.data.gclouddatastore.repository.query.CompositeIndex;
+
+/**
+ * Collects the composite indexes needed by the derived query methods of the
+ * repositories it is registered with, see
+ * {@link GcloudDatastoreRepositoryFactoryBean#setIndexAdvisor(IndexAdvisor)}, renders
+ * them as {@code index.yaml} and compares them with an existing one. Declared as a bean,
+ * it logs the {@code index.yaml}, or its differences with the one set by
+ * {@link #setIndexYaml(Resource)}, once the application context is refreshed.
+ */
+public class IndexAdvisor
+		implements ApplicationListener<ContextRefreshedEvent>, ApplicationContextAware {
+
+	private static final Logger log = LoggerFactory.getLogger(IndexAdvisor.class);
+
+	private static final Comparator<CompositeIndex> INDEX_ORDER = Comparator
+			.comparing(CompositeIndex::toYaml);
+
+	private final Map<CompositeIndex, Set<String>> requiredIndexes = new TreeMap<>(
+			INDEX_ORDER);
+
+	boolean ancestorQueries;
+
+	Resource indexYaml;
+
+	ApplicationContext applicationContext;
+
+	/**
+	 * Sets whether the query methods are called in a {@link Context} with ancestors,
+	 * which needs ancestor indexes.
+	 */
+	public void setAncestorQueries(boolean ancestorQueries) {
+		this.ancestorQueries = ancestorQueries;
+	}
+
+	public boolean isAncestorQueries() {
+		return this.ancestorQueries;
+	}
+
+	/**
+	 * Sets the deployed {@code index.yaml} to compare the required indexes with when the
+	 * application context is refreshed.
+	 */
+	public void setIndexYaml(Resource indexYaml) {
+		this.indexYaml = indexYaml;
+	}
+
+	@Override
+	public void setApplicationContext(ApplicationContext applicationContext) {
+		this.applicationContext = applicationContext;
+	}
+
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		// Child contexts propagate their events to this one
+		if (this.applicationContext != null
+				&& this.applicationContext != event.getApplicationContext()) {
+			return;
+		}
+		try {
+			report();
+		}
+		catch (IOException e) {
+			log.warn("Could not read " + this.indexYaml, e);
+		}
+	}
+
+	/**
+	 * Logs the required indexes, or their differences with the configured
+	 * {@code index.yaml}, and returns whether there is anything to report.
+	 */
+	boolean report() throws IOException {
+		if (this.indexYaml == null) {
+			String yaml = toYaml();
+			log.info("Composite indexes required by query methods:\n{}", yaml);
+			return !getRequiredIndexes().isEmpty();
+		}
+		Diff diff;
+		try (Reader reader = new InputStreamReader(this.indexYaml.getInputStream(),
+				StandardCharsets.UTF_8)) {
+			diff = diff(reader);
+		}
+		if (!diff.getMissing().isEmpty()) {
+			log.warn("{} lacks composite indexes required by query methods:\n{}",
+					this.indexYaml, diff);
+		}
+		else if (!diff.isEmpty()) {
+			log.info("{} has composite indexes no query method requires:\n{}",
+					this.indexYaml, diff);
+		}
+		return !diff.isEmpty();
+	}
+
+	public synchronized void register(String queryMethod,
+			Collection<CompositeIndex> indexes) {
+
+		for (CompositeIndex index : indexes) {
+			this.requiredIndexes.computeIfAbsent(index, i -> new TreeSet<>())
+					.add(queryMethod);
+		}
+	}
+
+	/**
+	 * Returns the required indexes with the query methods that need them.
+	 */
+	public synchronized Map<CompositeIndex, Set<String>> getRequiredIndexes() {
+		Map<CompositeIndex, Set<String>> requiredIndexes = new LinkedHashMap<>();
+		this.requiredIndexes.forEach((index, queryMethods) -> requiredIndexes.put(index,
+				Collections.unmodifiableSet(new TreeSet<>(queryMethods))));
+		return Collections.unmodifiableMap(requiredIndexes);
+	}
+
+	/**
+	 * Returns the required indexes as the content of an {@code index.yaml}.
+	 */
+	public synchronized String toYaml() {
+		StringBuilder yaml = new StringBuilder("indexes:\n");
+		this.requiredIndexes.forEach((index, queryMethods) -> {
+			yaml.append('\n');
+			for (String queryMethod : queryMethods) {
+				yaml.append("# ").append(queryMethod).append('\n');
+			}
+			yaml.append(index.toYaml());
+		});
+		return yaml.toString();
+	}
+
+	/**
+	 * Compares the required indexes with the ones of an {@code index.yaml}.
+	 */
+	public synchronized Diff diff(Reader indexYaml) throws IOException {
+		Set<CompositeIndex> existing = new LinkedHashSet<>(readIndexes(indexYaml));
+		Set<CompositeIndex> missing = new LinkedHashSet<>(this.requiredIndexes.keySet());
+		missing.removeAll(existing);
+		existing.removeAll(this.requiredIndexes.keySet());
+		return new Diff(new ArrayList<>(missing), new ArrayList<>(existing));
+	}
+
+	/**
+	 * Reads the indexes of an {@code index.yaml}. Only the block style that the
+	 * {@code gcloud} tooling writes is understood.
+	 */
+	public static List<CompositeIndex> readIndexes(Reader indexYaml) throws IOException {
+		List<CompositeIndex> indexes = new ArrayList<>();
+		BufferedReader reader = new BufferedReader(indexYaml);
+		String kind = null;
+		boolean ancestor = false;
+		List<StructuredQuery.OrderBy> properties = new ArrayList<>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			int comment = line.indexOf('#');
+			String entry = (comment < 0 ? line : line.substring(0, comment)).trim();
+			if (entry.startsWith("-")) {
+				entry = entry.substring(1).trim();
+			}
+			int colon = entry.indexOf(':');
+			if (colon < 0) {
+				continue;
+			}
+			String key = entry.substring(0, colon).trim();
+			String value = entry.substring(colon + 1).trim().replaceAll("^[\"']|[\"']$",
+					"");
+			switch (key) {
+			case "kind":
+				if (kind != null) {
+					indexes.add(new CompositeIndex(kind, ancestor, properties));
+				}
+				kind = value;
+				ancestor = false;
+				properties = new ArrayList<>();
+				break;
+			case "ancestor":
+				ancestor = value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("true");
+				break;
+			case "name":
+				properties.add(StructuredQuery.OrderBy.asc(value));
+				break;
+			case "direction":
+				if (value.toLowerCase().startsWith("desc") && !properties.isEmpty()) {
+					StructuredQuery.OrderBy property = properties
+							.remove(properties.size() - 1);
+					properties.add(StructuredQuery.OrderBy.desc(property.getProperty()));
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		if (kind != null) {
+			indexes.add(new CompositeIndex(kind, ancestor, properties));
+		}
+		return indexes;
+	}
+
+	/**
+	 * Indexes missing from an {@code index.yaml}, which make queries fail, and indexes
+	 * no query method needs, which only add write cost. Indexes used by queries other
+	 * than derived query methods show up as unused.
+	 */
+	public static final class Diff {
+
+		private final List<CompositeIndex> missing;
+
+		private final List<CompositeIndex> unused;
+
+		Diff(List<CompositeIndex> missing, List<CompositeIndex> unused) {
+			this.missing = Collections.unmodifiableList(missing);
+			this.unused = Collections.unmodifiableList(unused);
+		}
+
+		public List<CompositeIndex> getMissing() {
+			return this.missing;
+		}
+
+		public List<CompositeIndex> getUnused() {
+			return this.unused;
+		}
+
+		public boolean isEmpty() {
+			return this.missing.isEmpty() && this.unused.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder diff = new StringBuilder();
+			for (CompositeIndex index : this.missing) {
+				diff.append(index.toYaml().replaceAll("(?m)^", "+ "));
+			}
+			for (CompositeIndex index : this.unused) {
+				diff.append(index.toYaml().replaceAll("(?m)^", "- "));
+			}
+			return diff.toString();
+		}
+	}
+}
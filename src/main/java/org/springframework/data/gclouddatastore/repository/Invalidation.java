@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.cloud.datastore.Key;
+import lombok.EqualsAndHashCode;
+
+import org.springframework.util.Assert;
+
+/**
+ * Message sent over an {@link InvalidationBus}: some keys of a kind, or the whole kind,
+ * changed on the node identified by the origin.
+ */
+@EqualsAndHashCode
+public final class Invalidation implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String origin;
+
+	private final String kind;
+
+	private final List<Key> keys;
+
+	private Invalidation(String origin, String kind, List<Key> keys) {
+		Assert.notNull(origin, "Origin must not be null!");
+		Assert.notNull(kind, "Kind must not be null!");
+
+		this.origin = origin;
+		this.kind = kind;
+		this.keys = keys;
+	}
+
+	public static Invalidation ofKeys(String origin, String kind, Collection<Key> keys) {
+		Assert.notEmpty(keys, "Keys must not be empty!");
+
+		return new Invalidation(origin, kind,
+				Collections.unmodifiableList(new ArrayList<>(keys)));
+	}
+
+	public static Invalidation ofKind(String origin, String kind) {
+		return new Invalidation(origin, kind, null);
+	}
+
+	public String getOrigin() {
+		return this.origin;
+	}
+
+	public String getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * Returns whether every entity of the kind is invalidated.
+	 */
+	public boolean isAll() {
+		return this.keys == null;
+	}
+
+	/**
+	 * Returns the invalidated keys, empty if {@link #isAll()}.
+	 */
+	public List<Key> getKeys() {
+		return this.keys != null ? this.keys : Collections.emptyList();
+	}
+
+	@Override
+	public String toString() {
+		return "Invalidation of " + this.kind + (isAll() ? "" : " " + this.keys)
+				+ " from " + this.origin;
+	}
+}
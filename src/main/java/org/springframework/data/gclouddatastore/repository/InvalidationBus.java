@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts {@link Invalidation}s between the {@link EntityCache}s of all nodes, so a
+ * write on one node evicts the entities cached on the others. Implementations deliver
+ * every published invalidation to every subscriber, including the ones of the
+ * publishing node, which ignore their own.
+ *
+ * @see LoopbackInvalidationBus
+ * @see PubSubInvalidationBus
+ * @see BatchingInvalidationBus
+ */
+public interface InvalidationBus {
+
+	void publish(Invalidation invalidation);
+
+	void subscribe(Consumer<Invalidation> listener);
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.PathElement;
+
+/**
+ * Orders keys the way Datastore orders {@code __key__}: path element by path element,
+ * by kind, then ids before names.
+ */
+public final class KeyComparator implements Comparator<Key> {
+
+	public static final KeyComparator INSTANCE = new KeyComparator();
+
+	private KeyComparator() {
+	}
+
+	@Override
+	public int compare(Key key1, Key key2) {
+		List<PathElement> path1 = path(key1);
+		List<PathElement> path2 = path(key2);
+		for (int i = 0; i < Math.min(path1.size(), path2.size()); i++) {
+			PathElement element1 = path1.get(i);
+			PathElement element2 = path2.get(i);
+			int result = compareBytes(element1.getKind(), element2.getKind());
+			if (result != 0) {
+				return result;
+			}
+			if (element1.hasId() != element2.hasId()) {
+				return element1.hasId() ? -1 : 1;
+			}
+			result = element1.hasId()
+					? Long.compare(element1.getId(), element2.getId())
+					: compareBytes(element1.getName(), element2.getName());
+			if (result != 0) {
+				return result;
+			}
+		}
+		return Integer.compare(path1.size(), path2.size());
+	}
+
+	private static List<PathElement> path(Key key) {
+		List<PathElement> path = new ArrayList<>(key.getAncestors());
+		path.add(key.hasId() ? PathElement.of(key.getKind(), key.getId())
+				: PathElement.of(key.getKind(), key.getName()));
+		return path;
+	}
+
+	private static int compareBytes(String string1, String string2) {
+		byte[] bytes1 = string1.getBytes(StandardCharsets.UTF_8);
+		byte[] bytes2 = string2.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < Math.min(bytes1.length, bytes2.length); i++) {
+			int result = Integer.compare(bytes1[i] & 0xff, bytes2[i] & 0xff);
+			if (result != 0) {
+				return result;
+			}
+		}
+		return Integer.compare(bytes1.length, bytes2.length);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyFactory;
+import com.google.cloud.datastore.PathElement;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import org.springframework.util.Assert;
+
+/**
+ * Caches {@link KeyFactory} instances per kind and ancestor path, and the keys of
+ * ancestor paths, so building keys and ancestor filters does not allocate a new
+ * factory per operation. Lookups are lock-free; when the cache grows beyond its maximum
+ * size it is simply cleared.
+ */
+public class KeyFactoryCache {
+
+	public static final int DEFAULT_MAX_SIZE = 1024;
+
+	private final Datastore datastore;
+
+	private final int maxSize;
+
+	private final ConcurrentMap<KindAndAncestors, KeyFactory> keyFactories = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<List<PathElement>, Key> ancestorKeys = new ConcurrentHashMap<>();
+
+	public KeyFactoryCache(Datastore datastore) {
+		this(datastore, DEFAULT_MAX_SIZE);
+	}
+
+	public KeyFactoryCache(Datastore datastore, int maxSize) {
+		Assert.notNull(datastore, "Datastore must not be null!");
+		Assert.isTrue(maxSize > 0, "Max size must be positive!");
+
+		this.datastore = datastore;
+		this.maxSize = maxSize;
+	}
+
+	public KeyFactory getKeyFactory(String kind, Collection<PathElement> ancestors) {
+		KindAndAncestors cacheKey = new KindAndAncestors(kind,
+				new ArrayList<>(ancestors));
+		KeyFactory keyFactory = this.keyFactories.get(cacheKey);
+		if (keyFactory == null) {
+			keyFactory = this.datastore.newKeyFactory().setKind(kind)
+					.addAncestors(cacheKey.ancestors);
+			if (this.keyFactories.size() >= this.maxSize) {
+				this.keyFactories.clear();
+			}
+			this.keyFactories.put(cacheKey, keyFactory);
+		}
+		return keyFactory;
+	}
+
+	public Key newKey(String kind, Collection<PathElement> ancestors, Object id) {
+		KeyFactory keyFactory = getKeyFactory(kind, ancestors);
+		if (id instanceof Number) {
+			return keyFactory.newKey(((Number) id).longValue());
+		}
+		else {
+			return keyFactory.newKey(id.toString());
+		}
+	}
+
+	/**
+	 * Returns the key of the entity at the end of the given ancestor path, or
+	 * {@code null} if the path is empty.
+	 */
+	public Key getAncestorKey(Collection<PathElement> ancestors) {
+		if (ancestors.isEmpty()) {
+			return null;
+		}
+
+		List<PathElement> path = new ArrayList<>(ancestors);
+		Key key = this.ancestorKeys.get(path);
+		if (key == null) {
+			PathElement last = path.get(path.size() - 1);
+			KeyFactory keyFactory = getKeyFactory(last.getKind(),
+					path.subList(0, path.size() - 1));
+			key = last.hasId() ? keyFactory.newKey(last.getId())
+					: keyFactory.newKey(last.getName());
+			if (this.ancestorKeys.size() >= this.maxSize) {
+				this.ancestorKeys.clear();
+			}
+			this.ancestorKeys.put(path, key);
+		}
+		return key;
+	}
+
+	@AllArgsConstructor
+	@EqualsAndHashCode
+	private static final class KindAndAncestors {
+
+		final String kind;
+
+		final List<PathElement> ancestors;
+	}
+}
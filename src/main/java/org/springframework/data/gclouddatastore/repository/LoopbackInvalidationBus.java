@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link InvalidationBus} within one JVM, delivering invalidations synchronously on the
+ * publishing thread. Useful for tests and for several caches in one process.
+ */
+public class LoopbackInvalidationBus implements InvalidationBus {
+
+	private final List<Consumer<Invalidation>> listeners = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void publish(Invalidation invalidation) {
+		for (Consumer<Invalidation> listener : this.listeners) {
+			listener.accept(invalidation);
+		}
+	}
+
+	@Override
+	public void subscribe(Consumer<Invalidation> listener) {
+		this.listeners.add(listener);
+	}
+}
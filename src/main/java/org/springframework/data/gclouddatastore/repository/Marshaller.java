@@ -16,7 +16,6 @@
 
 package org.springframework.data.gclouddatastore.repository;
 
-import java.beans.PropertyDescriptor;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.time.OffsetDateTime;
@@ -43,12 +42,9 @@ import com.google.cloud.datastore.StringValue;
 import com.google.cloud.datastore.TimestampValue;
 import com.google.cloud.datastore.Value;
 
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.PropertyAccessorFactory;
-
 public class Marshaller {
 
-	private Value<?> toDatastoreValue(Object value) {
+	public Value<?> toDatastoreValue(Object value) {
 		if (value == null) {
 			return NullValue.of();
 		}
@@ -128,14 +124,9 @@ public class Marshaller {
 			}
 		}
 		else {
-			BeanWrapper beanWrapper = PropertyAccessorFactory
-					.forBeanPropertyAccess(object);
-			for (PropertyDescriptor propertyDescriptor : beanWrapper
-					.getPropertyDescriptors()) {
-				String name = propertyDescriptor.getName();
-				if ("class".equals(name))
-					continue;
-				setEntityValue(builder, name, beanWrapper.getPropertyValue(name));
+			for (BeanMetadata.Property property : BeanMetadata.of(object.getClass())
+					.getReadableProperties()) {
+				setEntityValue(builder, property.getName(), property.getValue(object));
 			}
 		}
 		return builder.build();
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyQuery;
+import com.google.cloud.datastore.QueryResults;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link CountStrategy} that walks the query in pages of {@code pageSize} keys by
+ * skipping {@code pageSize - 1} results with an offset and fetching only the last key
+ * of each page. Skipped results carry no payload, so counting costs one key per page
+ * on the wire instead of one key per entity. The remainder after the last full page is
+ * counted with a single keys-only query.
+ */
+public class OffsetCountStrategy implements CountStrategy {
+
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+
+	private final int pageSize;
+
+	public OffsetCountStrategy() {
+		this(DEFAULT_PAGE_SIZE);
+	}
+
+	public OffsetCountStrategy(int pageSize) {
+		Assert.isTrue(pageSize > 0, "Page size must be positive!");
+
+		this.pageSize = pageSize;
+	}
+
+	@Override
+	public long count(Datastore datastore, KeyQuery query) {
+		long count = 0;
+		Cursor cursor = query.getStartCursor();
+		while (true) {
+			KeyQuery.Builder pageBuilder = query.toBuilder().setOffset(this.pageSize - 1)
+					.setLimit(1);
+			if (cursor != null) {
+				pageBuilder.setStartCursor(cursor);
+			}
+			QueryResults<Key> results = datastore.run(pageBuilder.build());
+			if (!results.hasNext()) {
+				break;
+			}
+			results.next();
+			count += this.pageSize;
+			cursor = results.getCursorAfter();
+		}
+
+		KeyQuery.Builder tailBuilder = query.toBuilder().setOffset(0)
+				.setLimit(this.pageSize - 1);
+		if (cursor != null) {
+			tailBuilder.setStartCursor(cursor);
+		}
+		QueryResults<Key> results = datastore.run(tailBuilder.build());
+		while (results.hasNext()) {
+			results.next();
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.QueryResults;
+import com.google.cloud.datastore.StructuredQuery;
+
+import org.springframework.util.Assert;
+
+/**
+ * Iterates a query in batches of a fixed size, chained by cursor. While one batch is
+ * consumed the next one is already fetched on the executor, overlapping network and
+ * CPU. {@link #close()} abandons the prefetch.
+ */
+public class PrefetchingQueryIterator<V, T> implements Iterator<T>, AutoCloseable {
+
+	private final Datastore datastore;
+
+	private final StructuredQuery<V> query;
+
+	private final int batchSize;
+
+	private final Executor executor;
+
+	private final Function<? super V, ? extends T> mapper;
+
+	private Integer remaining;
+
+	private Iterator<V> current = Collections.emptyIterator();
+
+	private CompletableFuture<Batch<V>> pending;
+
+	public PrefetchingQueryIterator(Datastore datastore, StructuredQuery<V> query,
+			int batchSize, Executor executor, Function<? super V, ? extends T> mapper) {
+
+		Assert.isTrue(batchSize > 0, "Batch size must be positive!");
+
+		this.datastore = datastore;
+		this.query = query;
+		this.batchSize = batchSize;
+		this.executor = executor;
+		this.mapper = mapper;
+		this.remaining = query.getLimit();
+		this.pending = fetch(null);
+	}
+
+	public Stream<T> stream() {
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED),
+						false)
+				.onClose(this::close);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!this.current.hasNext()) {
+			if (this.pending == null) {
+				return false;
+			}
+			Batch<V> batch = join(this.pending);
+			if (this.remaining != null) {
+				this.remaining -= batch.results.size();
+			}
+			this.pending = batch.more ? fetch(batch.cursor) : null;
+			this.current = batch.results.iterator();
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return this.mapper.apply(this.current.next());
+	}
+
+	@Override
+	public void close() {
+		if (this.pending != null) {
+			this.pending.cancel(false);
+			this.pending = null;
+		}
+		this.current = Collections.emptyIterator();
+	}
+
+	private CompletableFuture<Batch<V>> fetch(Cursor cursor) {
+		int limit = this.remaining == null ? this.batchSize
+				: Math.min(this.batchSize, this.remaining);
+		if (limit <= 0) {
+			return null;
+		}
+		StructuredQuery.Builder<V> builder = this.query.toBuilder().setLimit(limit);
+		if (cursor != null) {
+			// The offset was consumed by the first batch
+			builder.setStartCursor(cursor).setOffset(0);
+		}
+		StructuredQuery<V> batchQuery = builder.build();
+
+		Supplier<Batch<V>> batch = () -> {
+			QueryResults<V> results = this.datastore.run(batchQuery);
+			List<V> list = new ArrayList<>(limit);
+			while (results.hasNext()) {
+				list.add(results.next());
+			}
+			return new Batch<>(list, results.getCursorAfter(), list.size() == limit);
+		};
+		try {
+			return CompletableFuture.supplyAsync(batch, this.executor);
+		}
+		catch (RejectedExecutionException e) {
+			// The executor is saturated, so fetch without prefetching
+			return CompletableFuture.completedFuture(batch.get());
+		}
+	}
+
+	private static <U> U join(CompletableFuture<U> future) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private static final class Batch<V> {
+
+		final List<V> results;
+
+		final Cursor cursor;
+
+		final boolean more;
+
+		Batch(List<V> results, Cursor cursor, boolean more) {
+			this.results = results;
+			this.cursor = cursor;
+			this.more = more;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.google.cloud.datastore.Key;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link InvalidationBus} over a publish/subscribe channel, such as Redis pub/sub or a
+ * Cloud Pub/Sub topic, reached through a {@link Transport}. Invalidations are sent as
+ * text: the origin, the kind, then one URL-safe key per line or {@code *} for the
+ * whole kind.
+ */
+public class PubSubInvalidationBus implements InvalidationBus {
+
+	public static final String DEFAULT_CHANNEL = "gclouddatastore-invalidations";
+
+	private static final String ALL = "*";
+
+	private static final String ENCODING = "UTF-8";
+
+	/**
+	 * Client of the channel, e.g. a thin wrapper around a Redis connection.
+	 */
+	public interface Transport {
+
+		void publish(String channel, String message);
+
+		void subscribe(String channel, Consumer<String> listener);
+	}
+
+	private final Transport transport;
+
+	private final String channel;
+
+	public PubSubInvalidationBus(Transport transport) {
+		this(transport, DEFAULT_CHANNEL);
+	}
+
+	public PubSubInvalidationBus(Transport transport, String channel) {
+		Assert.notNull(transport, "Transport must not be null!");
+		Assert.hasText(channel, "Channel must not be empty!");
+
+		this.transport = transport;
+		this.channel = channel;
+	}
+
+	@Override
+	public void publish(Invalidation invalidation) {
+		this.transport.publish(this.channel, encode(invalidation));
+	}
+
+	@Override
+	public void subscribe(Consumer<Invalidation> listener) {
+		this.transport.subscribe(this.channel,
+				message -> listener.accept(decode(message)));
+	}
+
+	static String encode(Invalidation invalidation) {
+		StringBuilder message = new StringBuilder();
+		message.append(urlEncode(invalidation.getOrigin())).append('\n')
+				.append(urlEncode(invalidation.getKind()));
+		if (invalidation.isAll()) {
+			message.append('\n').append(ALL);
+		}
+		for (Key key : invalidation.getKeys()) {
+			message.append('\n').append(key.toUrlSafe());
+		}
+		return message.toString();
+	}
+
+	static Invalidation decode(String message) {
+		String[] lines = message.split("\n");
+		Assert.isTrue(lines.length >= 3, "Malformed invalidation: " + message);
+
+		String origin = urlDecode(lines[0]);
+		String kind = urlDecode(lines[1]);
+		if (ALL.equals(lines[2])) {
+			return Invalidation.ofKind(origin, kind);
+		}
+		List<Key> keys = new ArrayList<>(lines.length - 2);
+		for (int i = 2; i < lines.length; i++) {
+			keys.add(Key.fromUrlSafe(lines[i]));
+		}
+		return Invalidation.ofKeys(origin, kind, keys);
+	}
+
+	private static String urlEncode(String value) {
+		try {
+			return URLEncoder.encode(value, ENCODING);
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String urlDecode(String value) {
+		try {
+			return URLDecoder.decode(value, ENCODING);
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
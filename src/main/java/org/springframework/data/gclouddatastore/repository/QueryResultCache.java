@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.google.cloud.datastore.Key;
+
+import org.springframework.util.Assert;
+
+/**
+ * Caches the keys a query method returned, by its bound parameters and ancestors. Any
+ * write to the kind clears the whole cache, since it may change which entities match.
+ * Entries expire a fixed time after they were written; when the cache grows beyond its
+ * maximum size the expired entries are dropped first, then arbitrary ones. Subscribed
+ * to an {@link InvalidationBus}, writes on other nodes clear it too; the repositories
+ * publish the writes of their own node.
+ */
+public class QueryResultCache {
+
+	private final ConcurrentMap<Object, CachedKeys> results = new ConcurrentHashMap<>();
+
+	private final AtomicLong modifications = new AtomicLong();
+
+	private final int maxSize;
+
+	private final long timeToLiveNanos;
+
+	private final LongSupplier nanoTime;
+
+	private volatile String origin;
+
+	private volatile String kind;
+
+	public QueryResultCache(int maxSize, long timeToLive, TimeUnit timeUnit) {
+		this(maxSize, timeToLive, timeUnit, System::nanoTime);
+	}
+
+	QueryResultCache(int maxSize, long timeToLive, TimeUnit timeUnit,
+			LongSupplier nanoTime) {
+
+		Assert.isTrue(maxSize > 0, "Max size must be positive!");
+		Assert.isTrue(timeToLive > 0, "Time to live must be positive!");
+
+		this.maxSize = maxSize;
+		this.timeToLiveNanos = timeUnit.toNanos(timeToLive);
+		this.nanoTime = nanoTime;
+	}
+
+	/**
+	 * Clears the cache when nodes other than the one identified by the origin write to
+	 * the kind.
+	 */
+	public void subscribe(InvalidationBus invalidationBus, String origin, String kind) {
+		Assert.notNull(invalidationBus, "InvalidationBus must not be null!");
+		Assert.notNull(origin, "Origin must not be null!");
+		Assert.notNull(kind, "Kind must not be null!");
+
+		this.origin = origin;
+		this.kind = kind;
+		invalidationBus.subscribe(this::apply);
+	}
+
+	/**
+	 * Returns the cached keys, or {@code null} if there are none or they expired.
+	 */
+	public List<Key> get(Object cacheKey) {
+		CachedKeys cached = this.results.get(cacheKey);
+		if (cached == null) {
+			return null;
+		}
+		if (now() - cached.expiresAt >= 0) {
+			this.results.remove(cacheKey, cached);
+			return null;
+		}
+		return cached.keys;
+	}
+
+	/**
+	 * Returns a stamp to pass to {@link #putIfUnmodified(Object, List, long)} before
+	 * running the query.
+	 */
+	public long stamp() {
+		return this.modifications.get();
+	}
+
+	/**
+	 * Caches the keys unless the kind was written since the stamp was taken, in which
+	 * case they may already be stale.
+	 */
+	public void putIfUnmodified(Object cacheKey, List<Key> keys, long stamp) {
+		if (this.modifications.get() != stamp) {
+			return;
+		}
+		long now = now();
+		CachedKeys cached = new CachedKeys(Collections.unmodifiableList(keys),
+				now + this.timeToLiveNanos);
+		this.results.put(cacheKey, cached);
+		// A write that raced with the put has cleared the cache before or after it
+		if (this.modifications.get() != stamp) {
+			this.results.remove(cacheKey, cached);
+		}
+		else if (this.results.size() > this.maxSize) {
+			evict(now);
+		}
+	}
+
+	/**
+	 * Clears the cache after entities of the kind were written.
+	 */
+	public void invalidate() {
+		this.modifications.incrementAndGet();
+		this.results.clear();
+	}
+
+	public int size() {
+		return this.results.size();
+	}
+
+	private void apply(Invalidation invalidation) {
+		if (!this.origin.equals(invalidation.getOrigin())
+				&& invalidation.getKind().equals(this.kind)) {
+			invalidate();
+		}
+	}
+
+	private long now() {
+		return this.nanoTime.getAsLong();
+	}
+
+	private void evict(long now) {
+		this.results.values().removeIf(cached -> now - cached.expiresAt >= 0);
+		Iterator<CachedKeys> iterator = this.results.values().iterator();
+		int target = this.maxSize - Math.max(1, this.maxSize / 10);
+		while (this.results.size() > target && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+
+	private static final class CachedKeys {
+
+		final List<Key> keys;
+
+		final long expiresAt;
+
+		CachedKeys(List<Key> keys, long expiresAt) {
+			this.keys = keys;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyQuery;
+import com.google.cloud.datastore.QueryResults;
+import com.google.cloud.datastore.StructuredQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * Deletes all entities matched by a keys-only query with parallel producer/consumer
+ * pipelines. The key space is split into shards at split points sampled with an
+ * {@code ORDER BY __scatter__} query; one producer per shard streams the keys of its
+ * range into batches, and a pool of consumers deletes the batches concurrently.
+ */
+public class ShardedDeleter {
+
+	private static final Logger log = LoggerFactory.getLogger(ShardedDeleter.class);
+
+	private static final int OVERSAMPLING_FACTOR = 32;
+
+	private static final String KEY_PROPERTY_NAME = "__key__";
+
+	private static final String SCATTER_PROPERTY_NAME = "__scatter__";
+
+	private static final List<Key> END_OF_KEYS = new ArrayList<>();
+
+	private final Datastore datastore;
+
+	private final int concurrency;
+
+	private final int batchSize;
+
+	public ShardedDeleter(Datastore datastore, int concurrency, int batchSize) {
+		Assert.notNull(datastore, "Datastore must not be null!");
+		Assert.isTrue(concurrency > 0, "Concurrency must be positive!");
+		int maxBatchSize = SimpleGcloudDatastoreRepository.MAX_MUTATIONS_PER_COMMIT;
+		Assert.isTrue(batchSize > 0 && batchSize <= maxBatchSize,
+				"Batch size must be between 1 and " + maxBatchSize + "!");
+
+		this.datastore = datastore;
+		this.concurrency = concurrency;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Deletes every entity matched by the given query, which must not have a filter
+	 * other than an ancestor filter. Ancestor queries are not split, as all their
+	 * entities are in one entity group.
+	 *
+	 * @param query keys-only query of the entities to delete
+	 * @param progressListener called with the running total after each deleted batch,
+	 * may be {@code null}
+	 * @return the number of deleted entities
+	 */
+	public long delete(KeyQuery query, LongConsumer progressListener) {
+		List<KeyQuery> shards = query.getFilter() == null ? split(query)
+				: Collections.singletonList(query);
+		log.debug("Deleting kind {} in {} shard(s)", query.getKind(), shards.size());
+
+		ExecutorService executor = Executors
+				.newFixedThreadPool(shards.size() + this.concurrency);
+		CompletionService<Void> completionService = new ExecutorCompletionService<>(
+				executor);
+		BlockingQueue<List<Key>> queue = new ArrayBlockingQueue<>(
+				2 * this.concurrency);
+		AtomicInteger remainingProducers = new AtomicInteger(shards.size());
+		AtomicLong deleted = new AtomicLong();
+		try {
+			for (KeyQuery shard : shards) {
+				completionService.submit(() -> {
+					produce(shard, queue);
+					if (remainingProducers.decrementAndGet() == 0) {
+						for (int i = 0; i < this.concurrency; i++) {
+							queue.put(END_OF_KEYS);
+						}
+					}
+					return null;
+				});
+			}
+			for (int i = 0; i < this.concurrency; i++) {
+				completionService.submit(() -> {
+					consume(queue, deleted, progressListener);
+					return null;
+				});
+			}
+
+			// fail fast: the first failed task cancels all others in finally
+			for (int i = 0; i < shards.size() + this.concurrency; i++) {
+				completionService.take().get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		return deleted.get();
+	}
+
+	List<KeyQuery> split(KeyQuery query) {
+		int numShards = this.concurrency;
+		List<KeyQuery> shards = new ArrayList<>(numShards);
+		if (numShards == 1) {
+			shards.add(query);
+			return shards;
+		}
+
+		KeyQuery sampleQuery = query.toBuilder()
+				.setOrderBy(StructuredQuery.OrderBy.asc(SCATTER_PROPERTY_NAME))
+				.setLimit(numShards * OVERSAMPLING_FACTOR).build();
+		List<Key> samples = new ArrayList<>();
+		QueryResults<Key> results = this.datastore.run(sampleQuery);
+		while (results.hasNext()) {
+			samples.add(results.next());
+		}
+		samples.sort(KeyComparator.INSTANCE);
+
+		Key lowerBound = null;
+		for (int i = 1; i <= numShards; i++) {
+			Key upperBound = null;
+			if (i < numShards && !samples.isEmpty()) {
+				upperBound = samples.get(i * samples.size() / numShards);
+				if (lowerBound != null && KeyComparator.INSTANCE.compare(lowerBound,
+						upperBound) >= 0) {
+					continue;
+				}
+			}
+			shards.add(shard(query, lowerBound, upperBound));
+			lowerBound = upperBound;
+			if (upperBound == null) {
+				break;
+			}
+		}
+		return shards;
+	}
+
+	private static KeyQuery shard(KeyQuery query, Key lowerBound, Key upperBound) {
+		List<StructuredQuery.Filter> filters = new ArrayList<>(2);
+		if (lowerBound != null) {
+			filters.add(StructuredQuery.PropertyFilter.ge(KEY_PROPERTY_NAME, lowerBound));
+		}
+		if (upperBound != null) {
+			filters.add(StructuredQuery.PropertyFilter.lt(KEY_PROPERTY_NAME, upperBound));
+		}
+		if (filters.isEmpty()) {
+			return query;
+		}
+		else if (filters.size() == 1) {
+			return query.toBuilder().setFilter(filters.get(0)).build();
+		}
+		else {
+			return query.toBuilder().setFilter(
+					StructuredQuery.CompositeFilter.and(filters.get(0), filters.get(1)))
+					.build();
+		}
+	}
+
+	private void produce(KeyQuery shard, BlockingQueue<List<Key>> queue)
+			throws InterruptedException {
+
+		QueryResults<Key> results = this.datastore.run(shard);
+		List<Key> batch = new ArrayList<>(this.batchSize);
+		while (results.hasNext()) {
+			batch.add(results.next());
+			if (batch.size() >= this.batchSize) {
+				queue.put(batch);
+				batch = new ArrayList<>(this.batchSize);
+			}
+		}
+		if (batch.size() > 0) {
+			queue.put(batch);
+		}
+	}
+
+	private void consume(BlockingQueue<List<Key>> queue, AtomicLong deleted,
+			LongConsumer progressListener) throws InterruptedException {
+
+		while (true) {
+			List<Key> batch = queue.take();
+			if (batch == END_OF_KEYS) {
+				return;
+			}
+			this.datastore.delete(batch.toArray(new Key[batch.size()]));
+			long total = deleted.addAndGet(batch.size());
+			log.debug("Deleted {} entities", total);
+			if (progressListener != null) {
+				progressListener.accept(total);
+			}
+		}
+	}
+}
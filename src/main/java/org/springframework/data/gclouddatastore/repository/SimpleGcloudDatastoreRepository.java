@@ -17,13 +17,29 @@
 package org.springframework.data.gclouddatastore.repository;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import com.google.cloud.datastore.Cursor;
 import com.google.cloud.datastore.Datastore;
 import com.google.cloud.datastore.DatastoreOptions;
 import com.google.cloud.datastore.Entity;
@@ -31,12 +47,11 @@ import com.google.cloud.datastore.EntityQuery;
 import com.google.cloud.datastore.FullEntity;
 import com.google.cloud.datastore.IncompleteKey;
 import com.google.cloud.datastore.Key;
-import com.google.cloud.datastore.KeyFactory;
 import com.google.cloud.datastore.KeyQuery;
-import com.google.cloud.datastore.PathElement;
 import com.google.cloud.datastore.Query;
 import com.google.cloud.datastore.QueryResults;
 import com.google.cloud.datastore.StructuredQuery;
+import com.google.cloud.datastore.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,12 +64,42 @@ public class SimpleGcloudDatastoreRepository<T, ID extends Serializable>
 	private static final Logger log = LoggerFactory
 			.getLogger(SimpleGcloudDatastoreRepository.class);
 
-	private static final int BUFFER_SIZE = 50;
+	/**
+	 * Number of entities Datastore writes or deletes at most per commit.
+	 */
+	public static final int MAX_MUTATIONS_PER_COMMIT = 500;
+
+	static final int DEFAULT_BATCH_SIZE = 50;
+
+	static final int DEFAULT_SAVE_MAX_PENDING_BATCHES = 4;
+
+	private static final int LOOKUP_SIZE = 1000;
+
+	private static final String KEY_PROPERTY_NAME = "__key__";
 
 	DatastoreOptions datastoreOptions;
 
+	Datastore datastore;
+
+	KeyFactoryCache keyFactoryCache;
+
 	Marshaller marshaller = new Marshaller();
 	Unmarshaller unmarshaller = new Unmarshaller();
+	CountStrategy countStrategy = new OffsetCountStrategy();
+	Executor lookupExecutor;
+	int deleteAllConcurrency = 1;
+	int deleteAllBatchSize = MAX_MUTATIONS_PER_COMMIT;
+	LongConsumer deleteAllProgressListener;
+	int batchSize = DEFAULT_BATCH_SIZE;
+	boolean adaptiveBatchSize;
+	Executor saveExecutor;
+	int saveMaxPendingBatches = DEFAULT_SAVE_MAX_PENDING_BATCHES;
+	Executor asyncExecutor;
+	int queryBatchSize;
+	EntityCache entityCache;
+	Collection<QueryResultCache> queryResultCaches = Collections.emptyList();
+	InvalidationBus invalidationBus;
+	String invalidationOrigin;
 
 	final EntityInformation<T, ID> entityInformation;
 	final String kind;
@@ -67,18 +112,136 @@ public class SimpleGcloudDatastoreRepository<T, ID extends Serializable>
 		this.entityInformation = entityInformation;
 		this.kind = entityInformation.getJavaType().getSimpleName();
 		this.datastoreOptions = datastoreOptions;
+		this.datastore = datastoreOptions.getService();
+		this.keyFactoryCache = new KeyFactoryCache(this.datastore);
+
+		BeanMetadata.of(entityInformation.getJavaType());
+	}
+
+	public void setCountStrategy(CountStrategy countStrategy) {
+		Assert.notNull(countStrategy, "CountStrategy must not be null!");
+
+		this.countStrategy = countStrategy;
+	}
+
+	public void setKeyFactoryCache(KeyFactoryCache keyFactoryCache) {
+		Assert.notNull(keyFactoryCache, "KeyFactoryCache must not be null!");
+
+		this.keyFactoryCache = keyFactoryCache;
+	}
+
+	public void setLookupExecutor(Executor lookupExecutor) {
+		this.lookupExecutor = lookupExecutor;
+	}
+
+	public void setDeleteAllConcurrency(int deleteAllConcurrency) {
+		Assert.isTrue(deleteAllConcurrency > 0, "Concurrency must be positive!");
+
+		this.deleteAllConcurrency = deleteAllConcurrency;
+	}
+
+	public void setDeleteAllBatchSize(int deleteAllBatchSize) {
+		Assert.isTrue(
+				deleteAllBatchSize > 0
+						&& deleteAllBatchSize <= MAX_MUTATIONS_PER_COMMIT,
+				"Batch size must be between 1 and " + MAX_MUTATIONS_PER_COMMIT
+						+ "!");
+
+		this.deleteAllBatchSize = deleteAllBatchSize;
+	}
+
+	/**
+	 * Sets a listener called with the running total of deleted entities after each
+	 * batch {@link #deleteAll()} deletes, or {@code null}.
+	 */
+	public void setDeleteAllProgressListener(LongConsumer deleteAllProgressListener) {
+		this.deleteAllProgressListener = deleteAllProgressListener;
+	}
+
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0 && batchSize <= MAX_MUTATIONS_PER_COMMIT,
+				"Batch size must be between 1 and " + MAX_MUTATIONS_PER_COMMIT
+						+ "!");
+
+		this.batchSize = batchSize;
+	}
+
+	public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+		this.adaptiveBatchSize = adaptiveBatchSize;
+	}
+
+	/**
+	 * Enables pipelined {@link #save(Iterable)}: batches are committed on the given
+	 * executor while the next batch is marshalled.
+	 */
+	public void setSaveExecutor(Executor saveExecutor) {
+		this.saveExecutor = saveExecutor;
+	}
+
+	/**
+	 * Sets how many batches a pipelined {@link #save(Iterable)} keeps in flight before
+	 * waiting for the oldest one to complete.
+	 */
+	public void setSaveMaxPendingBatches(int saveMaxPendingBatches) {
+		Assert.isTrue(saveMaxPendingBatches > 0, "Max pending batches must be positive!");
+
+		this.saveMaxPendingBatches = saveMaxPendingBatches;
+	}
+
+	/**
+	 * Sets the executor running the RPCs of asynchronous methods. Defaults to a shared
+	 * bounded pool of daemon threads with a bounded queue; an asynchronous method called
+	 * while the queue is full throws a {@link RejectedExecutionException} instead of
+	 * queueing without limit. Prefetches and sub-queries then run on the calling thread.
+	 */
+	public void setAsyncExecutor(Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+	}
+
+	/**
+	 * Sets the batch size for {@link #query(Query)} and {@link #findAll()}. A positive
+	 * size fetches the results in batches of that size, each prefetched on the async
+	 * executor while the previous one is consumed.
+	 */
+	public void setQueryBatchSize(int queryBatchSize) {
+		Assert.isTrue(queryBatchSize >= 0, "Query batch size must not be negative!");
+
+		this.queryBatchSize = queryBatchSize;
+	}
+
+	/**
+	 * Sets the cache for entities read by id, or {@code null} to always read from
+	 * Datastore.
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	/**
+	 * Sets the result caches of the query methods, cleared on every write.
+	 */
+	public void setQueryResultCaches(Collection<QueryResultCache> queryResultCaches) {
+		Assert.notNull(queryResultCaches, "Query result caches must not be null!");
+
+		this.queryResultCaches = queryResultCaches;
+	}
+
+	/**
+	 * Publishes every write to a cached kind on the bus, once per batch, so the caches of
+	 * other nodes evict the written entities. The caches of this node ignore the
+	 * invalidations of the given origin.
+	 */
+	public void setInvalidationBus(InvalidationBus invalidationBus, String origin) {
+		Assert.isTrue(invalidationBus == null || origin != null,
+				"Origin must not be null!");
+
+		this.invalidationBus = invalidationBus;
+		this.invalidationOrigin = origin;
 	}
 
 	@Override
 	public long count() {
-		Datastore datastore = this.datastoreOptions.getService();
-		QueryResults<?> results = datastore.run(getAllKeyQuery());
-		long count = 0;
-		while (results.hasNext()) {
-			results.next();
-			count++;
-		}
-		return count;
+		return this.countStrategy.count(this.datastore, getAllKeyQuery());
 	}
 
 	@Override
@@ -116,25 +279,83 @@ public class SimpleGcloudDatastoreRepository<T, ID extends Serializable>
 
 	@Override
 	public void deleteAll() {
-		Datastore datastore = this.datastoreOptions.getService();
 		KeyQuery query = getAllKeyQuery();
-		deleteKeys(new Iterable<Key>() {
-			@Override
-			public Iterator<Key> iterator() {
-				return datastore.run(query);
+		TransactionHolder transactionHolder = getTransactionHolder();
+		if (transactionHolder == null && this.deleteAllConcurrency > 1) {
+			new ShardedDeleter(this.datastore, this.deleteAllConcurrency,
+					this.deleteAllBatchSize).delete(query, this.deleteAllProgressListener);
+		}
+		else {
+			// Transactional deletes only happen at commit, so report no progress
+			deleteKeys(new Iterable<Key>() {
+				@Override
+				public Iterator<Key> iterator() {
+					return SimpleGcloudDatastoreRepository.this.datastore.run(query);
+				}
+			}, transactionHolder == null ? this.deleteAllProgressListener : null);
+		}
+		Runnable invalidateAll = () -> {
+			if (this.entityCache != null) {
+				this.entityCache.invalidateAll();
 			}
-		});
+			this.queryResultCaches.forEach(QueryResultCache::invalidate);
+			publish(null);
+		};
+		if (transactionHolder != null) {
+			transactionHolder.afterCommit(invalidateAll);
+		}
+		else {
+			invalidateAll.run();
+		}
 	}
 
 	@Override
 	public boolean exists(ID id) {
-		return findOne(id) != null;
+		Key key = getKey(id);
+		Transaction transaction = getTransaction();
+		if (transaction != null) {
+			// Only ancestor queries may run in a transaction, so look the entity up
+			return transaction.get(key) != null;
+		}
+
+		long stamp = 0;
+		if (this.entityCache != null) {
+			if (this.entityCache.get(key) != null) {
+				return true;
+			}
+			if (this.entityCache.isMissing(key)) {
+				return false;
+			}
+			stamp = this.entityCache.stamp();
+		}
+
+		KeyQuery allKeyQuery = getAllKeyQuery();
+		StructuredQuery.Filter keyFilter = StructuredQuery.PropertyFilter
+				.eq(KEY_PROPERTY_NAME, key);
+		StructuredQuery.Filter ancestorFilter = allKeyQuery.getFilter();
+		KeyQuery query = allKeyQuery.toBuilder()
+				.setFilter(ancestorFilter == null ? keyFilter
+						: StructuredQuery.CompositeFilter.and(keyFilter, ancestorFilter))
+				.setLimit(1).build();
+		log.debug(query.toString());
+
+		boolean exists = this.datastore.run(query).hasNext();
+		if (!exists && this.entityCache != null) {
+			this.entityCache.putMissIfUnmodified(key, stamp);
+		}
+		return exists;
 	}
 
 	@Override
 	public Iterable<T> query(Query<Entity> query) {
-		Datastore datastore = this.datastoreOptions.getService();
-		QueryResults<Entity> results = datastore.run(query);
+		if (this.queryBatchSize > 0 && query instanceof StructuredQuery) {
+			return () -> new PrefetchingQueryIterator<>(this.datastore,
+					(StructuredQuery<Entity>) query, this.queryBatchSize,
+					getAsyncExecutor(), entity -> this.unmarshaller.unmarshal(entity,
+							this.entityInformation.getJavaType()));
+		}
+
+		QueryResults<Entity> results = this.datastore.run(query);
 		return new Iterable<T>() {
 			@Override
 			public Iterator<T> iterator() {
@@ -161,41 +382,238 @@ public class SimpleGcloudDatastoreRepository<T, ID extends Serializable>
 	}
 
 	@Override
-	public Iterable<T> findAll() {
-		EntityQuery.Builder queryBuilder = Query.newEntityQueryBuilder()
-				.setKind(this.kind);
-		setAncestorFilter(queryBuilder);
-		EntityQuery query = queryBuilder.build();
-		log.debug(query.toString());
+	public CompletableFuture<AsyncPage<T>> queryAsync(StructuredQuery<Entity> query,
+			int pageSize) {
+
+		Assert.notNull(query, "Query must not be null!");
+		Assert.isTrue(pageSize > 0, "Page size must be positive!");
+
+		return fetchPageAsync(query, pageSize, null);
+	}
+
+	@Override
+	public CompletableFuture<AsyncPage<T>> findAllAsync(int pageSize) {
+		return queryAsync(getAllQuery(), pageSize);
+	}
+
+	private CompletableFuture<AsyncPage<T>> fetchPageAsync(
+			StructuredQuery<Entity> query, int pageSize, Cursor startCursor) {
+
+		StructuredQuery.Builder<Entity> builder = query.toBuilder()
+				.setLimit(pageSize);
+		if (startCursor != null) {
+			builder.setStartCursor(startCursor);
+		}
+		StructuredQuery<Entity> pageQuery = builder.build();
+
+		return CompletableFuture.supplyAsync(() -> {
+			QueryResults<Entity> results = this.datastore.run(pageQuery);
+			List<T> content = new ArrayList<>(pageSize);
+			addFound(content, results);
+			Cursor endCursor = content.size() < pageSize ? null
+					: results.getCursorAfter();
+			return new AsyncPage<>(content, endCursor,
+					cursor -> fetchPageAsync(query, pageSize, cursor));
+		}, getAsyncExecutor());
+	}
+
+	@Override
+	public CompletableFuture<T> findOneAsync(ID id) {
+		return supplyAsync(() -> findOne(id));
+	}
+
+	@Override
+	public CompletableFuture<Iterable<T>> findAllAsync(Iterable<ID> ids) {
+		return supplyAsync(() -> findAll(ids));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> existsAsync(ID id) {
+		return supplyAsync(() -> exists(id));
+	}
+
+	@Override
+	public CompletableFuture<Long> countAsync() {
+		return supplyAsync(this::count);
+	}
+
+	@Override
+	public <S extends T> CompletableFuture<S> saveAsync(S entity) {
+		return supplyAsync(() -> save(entity));
+	}
 
-		return query(query);
+	@Override
+	public <S extends T> CompletableFuture<Iterable<S>> saveAsync(Iterable<S> entities) {
+		return supplyAsync(() -> save(entities));
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteAsync(ID id) {
+		return supplyAsync(() -> {
+			delete(id);
+			return null;
+		});
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteAsync(Iterable<? extends T> entities) {
+		return supplyAsync(() -> {
+			delete(entities);
+			return null;
+		});
+	}
+
+	private <U> CompletableFuture<U> supplyAsync(Supplier<U> supplier) {
+		return CompletableFuture.supplyAsync(Context.propagate(supplier),
+				getAsyncExecutor());
+	}
+
+	Executor getAsyncExecutor() {
+		return this.asyncExecutor != null ? this.asyncExecutor
+				: getDefaultAsyncExecutor();
+	}
+
+	static Executor getDefaultAsyncExecutor() {
+		return DefaultAsyncExecutor.INSTANCE;
+	}
+
+	@Override
+	public Iterable<T> findAll() {
+		return query(getAllQuery());
 	}
 
 	@Override
 	public Iterable<T> findAll(Iterable<ID> ids) {
-		return new Iterable<T>() {
-			@Override
-			public Iterator<T> iterator() {
-				Iterator<ID> idIter = ids.iterator();
-				return new Iterator<T>() {
-					@Override
-					public boolean hasNext() {
-						return idIter.hasNext();
-					}
+		Transaction transaction = getTransaction();
+		if (transaction != null) {
+			List<T> result = new ArrayList<>();
+			List<Key> chunk = new ArrayList<>(LOOKUP_SIZE);
+			for (ID id : ids) {
+				chunk.add(getKey(id));
+				if (chunk.size() >= LOOKUP_SIZE) {
+					addFound(result, transaction.fetch(chunk.toArray(new Key[chunk.size()]))
+							.iterator());
+					chunk.clear();
+				}
+			}
+			if (chunk.size() > 0) {
+				addFound(result,
+						transaction.fetch(chunk.toArray(new Key[chunk.size()])).iterator());
+			}
+			return result;
+		}
 
-					@Override
-					public T next() {
-						return findOne(idIter.next());
-					}
-				};
+		List<Key> keys = new ArrayList<>();
+		Map<Key, Entity> found = new HashMap<>();
+		List<List<Key>> chunks = new ArrayList<>();
+		List<Key> chunk = new ArrayList<>(LOOKUP_SIZE);
+		for (ID id : ids) {
+			Key key = getKey(id);
+			keys.add(key);
+			if (this.entityCache != null) {
+				Entity cached = this.entityCache.get(key);
+				if (cached != null) {
+					found.put(key, cached);
+					continue;
+				}
+				if (this.entityCache.isMissing(key)) {
+					continue;
+				}
 			}
-		};
+			chunk.add(key);
+			if (chunk.size() >= LOOKUP_SIZE) {
+				chunks.add(chunk);
+				chunk = new ArrayList<>(LOOKUP_SIZE);
+			}
+		}
+		if (chunk.size() > 0) {
+			chunks.add(chunk);
+		}
+
+		long stamp = this.entityCache != null ? this.entityCache.stamp() : 0;
+		if (this.lookupExecutor == null || chunks.size() <= 1) {
+			for (List<Key> lookupKeys : chunks) {
+				addFetched(found, lookupKeys, this.datastore.fetch(lookupKeys), stamp);
+			}
+		}
+		else {
+			List<CompletableFuture<List<Entity>>> futures = new ArrayList<>(
+					chunks.size());
+			for (List<Key> lookupKeys : chunks) {
+				futures.add(CompletableFuture.supplyAsync(
+						() -> this.datastore.fetch(lookupKeys), this.lookupExecutor));
+			}
+			for (int i = 0; i < chunks.size(); i++) {
+				addFetched(found, chunks.get(i), join(futures.get(i)), stamp);
+			}
+		}
+
+		List<T> result = new ArrayList<>(found.size());
+		for (Key key : keys) {
+			Entity entity = found.get(key);
+			if (entity != null) {
+				result.add(this.unmarshaller.unmarshal(entity,
+						this.entityInformation.getJavaType()));
+			}
+		}
+		return result;
+	}
+
+	private void addFound(List<T> result, Iterator<Entity> entities) {
+		while (entities.hasNext()) {
+			Entity entity = entities.next();
+			if (entity != null) {
+				result.add(this.unmarshaller.unmarshal(entity,
+						this.entityInformation.getJavaType()));
+			}
+		}
+	}
+
+	private void addFetched(Map<Key, Entity> found, List<Key> keys,
+			List<Entity> entities, long stamp) {
+
+		// Datastore.fetch returns null at the positions of missing keys
+		for (int i = 0; i < keys.size(); i++) {
+			Entity entity = entities.get(i);
+			if (entity != null) {
+				found.put(entity.getKey(), entity);
+				if (this.entityCache != null) {
+					this.entityCache.putIfUnmodified(entity, stamp);
+				}
+			}
+			else if (this.entityCache != null) {
+				this.entityCache.putMissIfUnmodified(keys.get(i), stamp);
+			}
+		}
 	}
 
 	@Override
 	public T findOne(ID id) {
-		Datastore datastore = this.datastoreOptions.getService();
-		Entity entity = datastore.get(getKey(id));
+		Key key = getKey(id);
+		Transaction transaction = getTransaction();
+		Entity entity;
+		if (transaction != null) {
+			entity = transaction.get(key);
+		}
+		else if (this.entityCache != null) {
+			entity = this.entityCache.get(key);
+			if (entity == null) {
+				if (this.entityCache.isMissing(key)) {
+					return null;
+				}
+				long stamp = this.entityCache.stamp();
+				entity = this.datastore.get(key);
+				if (entity != null) {
+					this.entityCache.putIfUnmodified(entity, stamp);
+				}
+				else {
+					this.entityCache.putMissIfUnmodified(key, stamp);
+				}
+			}
+		}
+		else {
+			entity = this.datastore.get(key);
+		}
 		if (entity == null) {
 			return null;
 		}
@@ -214,61 +632,196 @@ public class SimpleGcloudDatastoreRepository<T, ID extends Serializable>
 
 	@Override
 	public <S extends T> Iterable<S> save(Iterable<S> entities) {
-		Datastore datastore = this.datastoreOptions.getService();
+		// Transactional writes are buffered until commit, and the transaction is
+		// bound to this thread
+		if (this.saveExecutor == null || getTransactionHolder() != null) {
+			forEachBatch(entities, this::put);
+			return entities;
+		}
+
+		Deque<CompletableFuture<Void>> pending = new ArrayDeque<>();
+		forEachBatch(entities, batch -> {
+			if (pending.size() >= this.saveMaxPendingBatches) {
+				join(pending.poll());
+			}
+			pending.add(CompletableFuture.runAsync(() -> put(batch), this.saveExecutor));
+		});
+		while (!pending.isEmpty()) {
+			join(pending.poll());
+		}
+
+		return entities;
+	}
+
+	private <S extends T> void forEachBatch(Iterable<S> entities,
+			Consumer<FullEntity<?>[]> sink) {
 
 		List<FullEntity<? extends IncompleteKey>> buffer = new ArrayList<>();
+		int maxBatchSize = getMaxBatchSize();
+		long bufferBytes = 0;
 
 		for (S entity : entities) {
 			ID id = this.entityInformation.getId(entity);
 			Key key = getKey(id);
 
-			buffer.add(this.marshaller.toEntity(entity, key));
-			if (buffer.size() >= BUFFER_SIZE) {
-				datastore.put(buffer.toArray(new FullEntity[buffer.size()]));
+			FullEntity<? extends IncompleteKey> fullEntity = this.marshaller
+					.toEntity(entity, key);
+			if (this.adaptiveBatchSize) {
+				long entityBytes = EntitySizeEstimator.estimate(fullEntity);
+				if (!buffer.isEmpty() && bufferBytes
+						+ entityBytes > EntitySizeEstimator.MAX_BATCH_BYTES) {
+					sink.accept(buffer.toArray(new FullEntity<?>[buffer.size()]));
+					buffer.clear();
+					bufferBytes = 0;
+				}
+				bufferBytes += entityBytes;
+			}
+			buffer.add(fullEntity);
+			if (buffer.size() >= maxBatchSize) {
+				sink.accept(buffer.toArray(new FullEntity<?>[buffer.size()]));
 				buffer.clear();
+				bufferBytes = 0;
 			}
 		}
 		if (buffer.size() > 0) {
-			datastore.put(buffer.toArray(new FullEntity[buffer.size()]));
+			sink.accept(buffer.toArray(new FullEntity<?>[buffer.size()]));
 		}
+	}
 
-		return entities;
+	private void put(FullEntity<?>[] batch) {
+		TransactionHolder transactionHolder = getTransactionHolder();
+		if (transactionHolder != null) {
+			List<Key> keys = new ArrayList<>(batch.length);
+			for (FullEntity<?> entity : batch) {
+				keys.add((Key) entity.getKey());
+			}
+			transactionHolder.addMutations(keys);
+			transactionHolder.getTransaction().put(batch);
+			transactionHolder.afterCommit(() -> invalidate(keys));
+			return;
+		}
+
+		List<Entity> stored = this.datastore.put(batch);
+		if (this.entityCache != null) {
+			stored.forEach(this.entityCache::put);
+		}
+		if (isCached()) {
+			List<Key> keys = new ArrayList<>(stored.size());
+			for (Entity entity : stored) {
+				keys.add(entity.getKey());
+			}
+			this.queryResultCaches.forEach(QueryResultCache::invalidate);
+			publish(keys);
+		}
 	}
 
 	private void deleteKeys(Iterable<Key> keys) {
-		Datastore datastore = this.datastoreOptions.getService();
+		deleteKeys(keys, null);
+	}
 
-		List<Key> buffer = new ArrayList<>(BUFFER_SIZE);
+	private void deleteKeys(Iterable<Key> keys, LongConsumer progressListener) {
+		int maxBatchSize = getMaxBatchSize();
+		List<Key> buffer = new ArrayList<>(maxBatchSize);
+		long deleted = 0;
 		for (Key key : keys) {
 			buffer.add(key);
 
-			if (buffer.size() >= BUFFER_SIZE) {
-				datastore.delete(buffer.toArray(new Key[buffer.size()]));
+			if (buffer.size() >= maxBatchSize) {
+				delete(buffer.toArray(new Key[buffer.size()]));
+				deleted += buffer.size();
+				if (progressListener != null) {
+					progressListener.accept(deleted);
+				}
 				buffer.clear();
 			}
 		}
 		if (buffer.size() > 0) {
-			datastore.delete(buffer.toArray(new Key[buffer.size()]));
+			delete(buffer.toArray(new Key[buffer.size()]));
+			if (progressListener != null) {
+				progressListener.accept(deleted + buffer.size());
+			}
+		}
+	}
+
+	private void delete(Key[] keys) {
+		TransactionHolder transactionHolder = getTransactionHolder();
+		if (transactionHolder != null) {
+			transactionHolder.addMutations(Arrays.asList(keys));
+			transactionHolder.getTransaction().delete(keys);
+			transactionHolder.afterCommit(() -> invalidate(Arrays.asList(keys)));
+		}
+		else {
+			this.datastore.delete(keys);
+			invalidate(Arrays.asList(keys));
+		}
+	}
+
+	private void invalidate(List<Key> keys) {
+		if (this.entityCache != null) {
+			keys.forEach(this.entityCache::invalidate);
 		}
+		if (isCached()) {
+			this.queryResultCaches.forEach(QueryResultCache::invalidate);
+			publish(keys);
+		}
+	}
+
+	private boolean isCached() {
+		return this.entityCache != null || !this.queryResultCaches.isEmpty();
+	}
+
+	// Tells the other nodes caching the kind about the written keys, or all if null
+	private void publish(List<Key> keys) {
+		if (this.invalidationBus != null && isCached()) {
+			this.invalidationBus.publish(keys != null
+					? Invalidation.ofKeys(this.invalidationOrigin, this.kind, keys)
+					: Invalidation.ofKind(this.invalidationOrigin, this.kind));
+		}
+	}
+
+	private Transaction getTransaction() {
+		return GcloudDatastoreTransactionManager
+				.getCurrentTransaction(this.datastoreOptions);
+	}
+
+	private TransactionHolder getTransactionHolder() {
+		return GcloudDatastoreTransactionManager
+				.getTransactionHolder(this.datastoreOptions);
+	}
+
+	private static <U> U join(CompletableFuture<U> future) {
+		try {
+			return future.join();
+		}
+		catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private int getMaxBatchSize() {
+		return this.adaptiveBatchSize ? MAX_MUTATIONS_PER_COMMIT : this.batchSize;
 	}
 
 	private <U> void setAncestorFilter(StructuredQuery.Builder<U> queryBuilder) {
-		Datastore datastore = datastoreOptions.getService();
-
-		Deque<PathElement> ancestors = Context.getAncestors();
-		Deque<PathElement> init = new LinkedList<>();
-		init.addAll(ancestors);
-		PathElement last = init.pollLast();
-
-		if (last != null) {
-			KeyFactory keyFactory = datastore.newKeyFactory();
-			keyFactory.addAncestors(init).setKind(last.getKind());
-			Key key = last.hasId() ? keyFactory.newKey(last.getId())
-					: keyFactory.newKey(last.getName());
+		Key key = this.keyFactoryCache.getAncestorKey(Context.getAncestors());
+		if (key != null) {
 			queryBuilder.setFilter(StructuredQuery.PropertyFilter.hasAncestor(key));
 		}
 	}
 
+	private EntityQuery getAllQuery() {
+		EntityQuery.Builder queryBuilder = Query.newEntityQueryBuilder()
+				.setKind(this.kind);
+		setAncestorFilter(queryBuilder);
+		EntityQuery query = queryBuilder.build();
+		log.debug(query.toString());
+
+		return query;
+	}
+
 	private KeyQuery getAllKeyQuery() {
 		KeyQuery.Builder queryBuilder = Query.newKeyQueryBuilder().setKind(this.kind);
 		setAncestorFilter(queryBuilder);
@@ -279,19 +832,30 @@ public class SimpleGcloudDatastoreRepository<T, ID extends Serializable>
 	}
 
 	private Key getKey(ID id) {
-		Datastore datastore = this.datastoreOptions.getService();
-
-		KeyFactory keyFactory = datastore.newKeyFactory().setKind(this.kind);
-		Iterable<PathElement> ancestors = Context.getAncestors();
-		keyFactory.addAncestors(ancestors);
+		return this.keyFactoryCache.newKey(this.kind, Context.getAncestors(), id);
+	}
 
-		Key key;
-		if (id instanceof Number) {
-			key = keyFactory.newKey(((Number) id).longValue());
-		}
-		else {
-			key = keyFactory.newKey(id.toString());
+	private static final class DefaultAsyncExecutor {
+
+		static final int QUEUE_CAPACITY = 1000;
+
+		static final Executor INSTANCE = createExecutor();
+
+		private static Executor createExecutor() {
+			int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+			AtomicInteger counter = new AtomicInteger();
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+					runnable -> {
+						Thread thread = new Thread(runnable,
+								"gcloud-datastore-async-" + counter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					},
+					// Running the task on the caller would nest the caller's ancestors
+					new ThreadPoolExecutor.AbortPolicy());
+			executor.allowCoreThreadTimeOut(true);
+			return executor;
 		}
-		return key;
 	}
 }
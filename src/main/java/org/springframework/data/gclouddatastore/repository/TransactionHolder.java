@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.Transaction;
+
+import org.springframework.transaction.support.ResourceHolderSupport;
+import org.springframework.util.Assert;
+
+/**
+ * Holds the Datastore {@link Transaction} that {@link GcloudDatastoreTransactionManager}
+ * binds to the thread, together with the keys it mutates and what to run once it
+ * committed.
+ */
+final class TransactionHolder extends ResourceHolderSupport {
+
+	final Transaction transaction;
+
+	private final Set<Key> mutatedKeys = new HashSet<>();
+
+	private final List<Runnable> afterCommit = new ArrayList<>();
+
+	TransactionHolder(Transaction transaction) {
+		this.transaction = transaction;
+	}
+
+	/**
+	 * Returns the transaction, failing once its timeout has passed.
+	 */
+	Transaction getTransaction() {
+		if (hasTimeout()) {
+			getTimeToLiveInMillis();
+		}
+		return this.transaction;
+	}
+
+	/**
+	 * Counts the keys about to be written, failing before the transaction would
+	 * exceed the mutations Datastore allows.
+	 */
+	void addMutations(Collection<Key> keys) {
+		Set<Key> added = new HashSet<>(keys);
+		added.removeAll(this.mutatedKeys);
+		int maxMutations = SimpleGcloudDatastoreRepository.MAX_MUTATIONS_PER_COMMIT;
+		Assert.state(this.mutatedKeys.size() + added.size() <= maxMutations,
+				"Datastore transactions are limited to " + maxMutations + " mutations!");
+		this.mutatedKeys.addAll(added);
+	}
+
+	/**
+	 * Runs the action once the transaction committed.
+	 */
+	void afterCommit(Runnable action) {
+		this.afterCommit.add(action);
+	}
+
+	void runAfterCommit() {
+		this.afterCommit.forEach(Runnable::run);
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		this.mutatedKeys.clear();
+		this.afterCommit.clear();
+	}
+}
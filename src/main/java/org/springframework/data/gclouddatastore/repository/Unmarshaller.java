@@ -31,30 +31,31 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.google.cloud.Timestamp;
+import com.google.cloud.datastore.BaseEntity;
 import com.google.cloud.datastore.BlobValue;
 import com.google.cloud.datastore.EntityValue;
 import com.google.cloud.datastore.FullEntity;
 import com.google.cloud.datastore.IncompleteKey;
 import com.google.cloud.datastore.LatLng;
 import com.google.cloud.datastore.ListValue;
+import com.google.cloud.datastore.LongValue;
+import com.google.cloud.datastore.ProjectionEntity;
 import com.google.cloud.datastore.TimestampValue;
 import com.google.cloud.datastore.Value;
 import com.google.cloud.datastore.ValueType;
 
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.PropertyAccessorFactory;
-
 public class Unmarshaller {
 
 	public <K extends IncompleteKey> Object unmarshal(
-			FullEntity<? extends IncompleteKey> entity) {
+			BaseEntity<? extends IncompleteKey> entity) {
 		Map<String, Object> newMap = new HashMap<>();
 		unmarshalToMap(entity, newMap);
 		return newMap;
 	}
 
 	public <K extends IncompleteKey, T> T unmarshal(
-			FullEntity<? extends IncompleteKey> entity, Class<T> clazz) {
+			BaseEntity<? extends IncompleteKey> entity, Class<T> clazz) {
 		try {
 			T obj = clazz.newInstance();
 			unmarshalToObject(entity, obj);
@@ -104,7 +105,7 @@ public class Unmarshaller {
 		}
 	}
 
-	public <K extends IncompleteKey> void unmarshalToMap(FullEntity<K> entity,
+	public <K extends IncompleteKey> void unmarshalToMap(BaseEntity<K> entity,
 			Map<String, Object> map) {
 
 		for (String name : entity.getNames()) {
@@ -141,7 +142,7 @@ public class Unmarshaller {
 	}
 
 	@SuppressWarnings("unchecked")
-	public <K extends IncompleteKey> void unmarshalToObject(FullEntity<K> entity,
+	public <K extends IncompleteKey> void unmarshalToObject(BaseEntity<K> entity,
 			Object object) {
 
 		if (object instanceof Map) {
@@ -149,257 +150,288 @@ public class Unmarshaller {
 			return;
 		}
 
-		BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(object);
+		BeanMetadata metadata = BeanMetadata.of(object.getClass());
 		for (String name : entity.getNames()) {
-			Value<?> value = entity.getValue(name);
-			ValueType valueType = value.getType();
-			Class<?> targetType = beanWrapper.getPropertyType(name);
-			if (targetType == null)
+			BeanMetadata.Property property = metadata.getProperty(name);
+			if (property == null)
 				continue;
 
-			switch (valueType) {
-			case BLOB:
-				if (targetType.isAssignableFrom(byte[].class)) {
-					beanWrapper.setPropertyValue(name, unmarshal(value));
-				}
-				else if (targetType.isAssignableFrom(String.class)) {
-					beanWrapper.setPropertyValue(name, new String(
-							unmarshal(value, byte[].class), Charset.forName("UTF-8")));
-				}
-				break;
-			case BOOLEAN:
-				if (targetType.isAssignableFrom(Boolean.class)
-						|| targetType.isAssignableFrom(boolean.class)) {
-					beanWrapper.setPropertyValue(name, unmarshal(value));
-				}
-				break;
-			case DOUBLE:
-				if (targetType.isAssignableFrom(Double.class)
-						|| targetType.isAssignableFrom(double.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).doubleValue());
-				}
-				else if (targetType.isAssignableFrom(Float.class)
-						|| targetType.isAssignableFrom(float.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).floatValue());
-				}
-				else if (targetType.isAssignableFrom(Long.class)
-						|| targetType.isAssignableFrom(long.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).longValue());
-				}
-				else if (targetType.isAssignableFrom(Integer.class)
-						|| targetType.isAssignableFrom(int.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).intValue());
-				}
-				else if (targetType.isAssignableFrom(Short.class)
-						|| targetType.isAssignableFrom(short.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).shortValue());
-				}
-				else if (targetType.isAssignableFrom(Byte.class)
-						|| targetType.isAssignableFrom(byte.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).byteValue());
-				}
-				break;
-			case LONG:
-				if (targetType.isAssignableFrom(Long.class)
-						|| targetType.isAssignableFrom(long.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).longValue());
-				}
-				else if (targetType.isAssignableFrom(Integer.class)
-						|| targetType.isAssignableFrom(int.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).intValue());
-				}
-				else if (targetType.isAssignableFrom(Short.class)
-						|| targetType.isAssignableFrom(short.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).shortValue());
-				}
-				else if (targetType.isAssignableFrom(Byte.class)
-						|| targetType.isAssignableFrom(byte.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).byteValue());
-				}
-				else if (targetType.isAssignableFrom(Double.class)
-						|| targetType.isAssignableFrom(double.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).doubleValue());
-				}
-				else if (targetType.isAssignableFrom(Float.class)
-						|| targetType.isAssignableFrom(float.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Number.class).floatValue());
-				}
-				break;
-			case STRING:
-				if (targetType.isAssignableFrom(String.class)) {
-					beanWrapper.setPropertyValue(name, unmarshal(value));
-				}
-				else if (targetType.isAssignableFrom(byte[].class)) {
-					beanWrapper.setPropertyValue(name, unmarshal(value, String.class)
-							.getBytes(Charset.forName("UTF-8")));
-				}
-				else if (targetType.isAssignableFrom(Long.class)
-						|| targetType.isAssignableFrom(long.class)) {
-					beanWrapper.setPropertyValue(name,
-							Long.decode(unmarshal(value, String.class)));
-				}
-				else if (targetType.isAssignableFrom(Integer.class)
-						|| targetType.isAssignableFrom(int.class)) {
-					beanWrapper.setPropertyValue(name,
-							Integer.decode(unmarshal(value, String.class)));
-				}
-				else if (targetType.isAssignableFrom(Short.class)
-						|| targetType.isAssignableFrom(short.class)) {
-					beanWrapper.setPropertyValue(name,
-							Short.decode(unmarshal(value, String.class)));
-				}
-				else if (targetType.isAssignableFrom(Byte.class)
-						|| targetType.isAssignableFrom(byte.class)) {
-					beanWrapper.setPropertyValue(name,
-							Byte.decode(unmarshal(value, String.class)));
-				}
-				else if (targetType.isAssignableFrom(Double.class)
-						|| targetType.isAssignableFrom(double.class)) {
-					beanWrapper.setPropertyValue(name,
-							Double.valueOf(unmarshal(value, String.class)));
-				}
-				else if (targetType.isAssignableFrom(Float.class)
-						|| targetType.isAssignableFrom(float.class)) {
-					beanWrapper.setPropertyValue(name,
-							Float.valueOf(unmarshal(value, String.class)));
+			Value<?> value = entity.getValue(name);
+			if (entity instanceof ProjectionEntity && value.getType() == ValueType.LONG
+					&& isTimestampProperty(property)) {
+				// Projections return the index value of a timestamp, in microseconds
+				value = TimestampValue
+						.of(Timestamp.ofTimeMicroseconds(((LongValue) value).get()));
+			}
+			PropertyConverter converter = property.getConverter(value.getType());
+			if (converter != null) {
+				converter.convert(this, object, value);
+			}
+		}
+	}
+
+	/**
+	 * Sets a Datastore value of one {@link ValueType} to one bean property. Resolved
+	 * once per property by {@link #resolveConverter}.
+	 */
+	@FunctionalInterface
+	interface PropertyConverter {
+
+		void convert(Unmarshaller unmarshaller, Object bean, Value<?> value);
+	}
+
+	@FunctionalInterface
+	private interface ValueConverter {
+
+		Object convert(Unmarshaller unmarshaller, Value<?> value);
+	}
+
+	private static boolean isTimestampProperty(BeanMetadata.Property property) {
+		return property.getConverter(ValueType.TIMESTAMP) != null
+				&& property.getConverter(ValueType.LONG) == null;
+	}
+
+	private static boolean isAssignableFrom(Class<?> targetType, Class<?> boxedType,
+			Class<?> primitiveType) {
+		return targetType.isAssignableFrom(boxedType)
+				|| targetType.isAssignableFrom(primitiveType);
+	}
+
+	private static PropertyConverter setter(BeanMetadata.Property property,
+			ValueConverter valueConverter) {
+		if (!property.isWritable()) {
+			return null;
+		}
+		return (unmarshaller, bean, value) -> property.setValue(bean,
+				valueConverter.convert(unmarshaller, value));
+	}
+
+	private static ValueConverter numberConverter(Class<?> targetType) {
+		if (isAssignableFrom(targetType, Long.class, long.class)) {
+			return (u, value) -> u.unmarshal(value, Number.class).longValue();
+		}
+		else if (isAssignableFrom(targetType, Integer.class, int.class)) {
+			return (u, value) -> u.unmarshal(value, Number.class).intValue();
+		}
+		else if (isAssignableFrom(targetType, Short.class, short.class)) {
+			return (u, value) -> u.unmarshal(value, Number.class).shortValue();
+		}
+		else if (isAssignableFrom(targetType, Byte.class, byte.class)) {
+			return (u, value) -> u.unmarshal(value, Number.class).byteValue();
+		}
+		else if (isAssignableFrom(targetType, Double.class, double.class)) {
+			return (u, value) -> u.unmarshal(value, Number.class).doubleValue();
+		}
+		else if (isAssignableFrom(targetType, Float.class, float.class)) {
+			return (u, value) -> u.unmarshal(value, Number.class).floatValue();
+		}
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	static PropertyConverter resolveConverter(BeanMetadata.Property property,
+			ValueType valueType) {
+
+		Class<?> targetType = property.getType();
+		if (targetType == null) {
+			return null;
+		}
+
+		switch (valueType) {
+		case BLOB:
+			if (targetType.isAssignableFrom(byte[].class)) {
+				return setter(property, (u, value) -> u.unmarshal(value));
+			}
+			else if (targetType.isAssignableFrom(String.class)) {
+				return setter(property, (u, value) -> new String(
+						u.unmarshal(value, byte[].class), Charset.forName("UTF-8")));
+			}
+			return null;
+		case BOOLEAN:
+			if (isAssignableFrom(targetType, Boolean.class, boolean.class)) {
+				return setter(property, (u, value) -> u.unmarshal(value));
+			}
+			return null;
+		case DOUBLE:
+			if (isAssignableFrom(targetType, Double.class, double.class)) {
+				return setter(property,
+						(u, value) -> u.unmarshal(value, Number.class).doubleValue());
+			}
+			else if (isAssignableFrom(targetType, Float.class, float.class)) {
+				return setter(property,
+						(u, value) -> u.unmarshal(value, Number.class).floatValue());
+			}
+			else {
+				ValueConverter numberConverter = numberConverter(targetType);
+				return numberConverter == null ? null
+						: setter(property, numberConverter);
+			}
+		case LONG: {
+			ValueConverter numberConverter = numberConverter(targetType);
+			return numberConverter == null ? null : setter(property, numberConverter);
+		}
+		case STRING:
+			if (targetType.isAssignableFrom(String.class)) {
+				return setter(property, (u, value) -> u.unmarshal(value));
+			}
+			else if (targetType.isAssignableFrom(byte[].class)) {
+				return setter(property, (u, value) -> u.unmarshal(value, String.class)
+						.getBytes(Charset.forName("UTF-8")));
+			}
+			else if (isAssignableFrom(targetType, Long.class, long.class)) {
+				return setter(property,
+						(u, value) -> Long.decode(u.unmarshal(value, String.class)));
+			}
+			else if (isAssignableFrom(targetType, Integer.class, int.class)) {
+				return setter(property,
+						(u, value) -> Integer.decode(u.unmarshal(value, String.class)));
+			}
+			else if (isAssignableFrom(targetType, Short.class, short.class)) {
+				return setter(property,
+						(u, value) -> Short.decode(u.unmarshal(value, String.class)));
+			}
+			else if (isAssignableFrom(targetType, Byte.class, byte.class)) {
+				return setter(property,
+						(u, value) -> Byte.decode(u.unmarshal(value, String.class)));
+			}
+			else if (isAssignableFrom(targetType, Double.class, double.class)) {
+				return setter(property,
+						(u, value) -> Double.valueOf(u.unmarshal(value, String.class)));
+			}
+			else if (isAssignableFrom(targetType, Float.class, float.class)) {
+				return setter(property,
+						(u, value) -> Float.valueOf(u.unmarshal(value, String.class)));
+			}
+			else if (targetType.isAssignableFrom(URI.class)) {
+				if (!property.isWritable()) {
+					return null;
 				}
-				else if (targetType.isAssignableFrom(URI.class)
-						|| targetType.isAssignableFrom(float.class)) {
+				return (u, bean, value) -> {
 					try {
-						beanWrapper.setPropertyValue(name,
-								new URI(unmarshal(value, String.class)));
+						property.setValue(bean, new URI(u.unmarshal(value, String.class)));
 					}
 					catch (URISyntaxException e) {
-						break;
+						// leave the property untouched
 					}
-				}
-				break;
-			case ENTITY:
-				if (targetType.isAssignableFrom(Map.class)) {
-					beanWrapper.setPropertyValue(name, unmarshal(value, Map.class));
-				}
-				else if (Map.class.isAssignableFrom(targetType)) {
-					Map<String, Object> map = (Map<String, Object>) beanWrapper
-							.getPropertyValue(name);
+				};
+			}
+			return null;
+		case ENTITY:
+			if (targetType.isAssignableFrom(Map.class)) {
+				return setter(property, (u, value) -> u.unmarshal(value, Map.class));
+			}
+			else if (Map.class.isAssignableFrom(targetType)) {
+				return (u, bean, value) -> {
+					Map<String, Object> map = property.isReadable()
+							? (Map<String, Object>) property.getValue(bean) : null;
 					if (map == null) {
 						try {
 							map = (Map<String, Object>) targetType.getConstructor()
 									.newInstance();
 						}
 						catch (ReflectiveOperationException e) {
-							break;
+							return;
 						}
 					}
-					// map.clear();
-					unmarshalToMap((FullEntity<?>) value.get(), map);
-				}
-				else {
-					// Bean
-					Object targetObject = beanWrapper.getPropertyValue(name);
+					u.unmarshalToMap((FullEntity<?>) value.get(), map);
+				};
+			}
+			else {
+				// Bean
+				return (u, bean, value) -> {
+					Object targetObject = property.isReadable() ? property.getValue(bean)
+							: null;
 					if (targetObject == null) {
 						try {
 							targetObject = targetType.getConstructor().newInstance();
 						}
 						catch (ReflectiveOperationException e) {
-							break;
+							return;
 						}
 					}
-					unmarshalToObject(((EntityValue) value).get(), targetObject);
-				}
-				break;
-			case KEY:
-				break;
-			case LAT_LNG:
-				if (targetType.isAssignableFrom(LatLng.class)) {
-					beanWrapper.setPropertyValue(name, unmarshal(value));
-				}
-				else if (targetType.isAssignableFrom(com.google.type.LatLng.class)) {
-					LatLng latLng = unmarshal(value, LatLng.class);
-					beanWrapper.setPropertyValue(name,
-							com.google.type.LatLng.newBuilder()
-									.setLatitude(latLng.getLatitude())
-									.setLongitude(latLng.getLongitude()).build());
-				}
-				break;
-			case LIST:
-				if (targetType.isAssignableFrom(List.class)) {
-					beanWrapper.setPropertyValue(name, unmarshal(value, List.class));
-				}
-				else if (List.class.isAssignableFrom(targetType)) {
-					List<Object> newList = (List<Object>) beanWrapper
-							.getPropertyValue(name);
+					u.unmarshalToObject(((EntityValue) value).get(), targetObject);
+				};
+			}
+		case LAT_LNG:
+			if (targetType.isAssignableFrom(LatLng.class)) {
+				return setter(property, (u, value) -> u.unmarshal(value));
+			}
+			else if (targetType.isAssignableFrom(com.google.type.LatLng.class)) {
+				return setter(property, (u, value) -> {
+					LatLng latLng = u.unmarshal(value, LatLng.class);
+					return com.google.type.LatLng.newBuilder()
+							.setLatitude(latLng.getLatitude())
+							.setLongitude(latLng.getLongitude()).build();
+				});
+			}
+			return null;
+		case LIST:
+			if (targetType.isAssignableFrom(List.class)) {
+				return setter(property, (u, value) -> u.unmarshal(value, List.class));
+			}
+			else if (List.class.isAssignableFrom(targetType)) {
+				return (u, bean, value) -> {
+					List<Object> newList = property.isReadable()
+							? (List<Object>) property.getValue(bean) : null;
 					if (newList == null) {
 						try {
 							newList = (List<Object>) targetType.getConstructor()
 									.newInstance();
 						}
 						catch (ReflectiveOperationException e) {
-							break;
+							return;
 						}
 					}
 					newList.clear();
-					for (Object newValue : unmarshal(value, List.class)) {
+					for (Object newValue : u.unmarshal(value, List.class)) {
 						newList.add(newValue);
 					}
-				}
-				break;
-			case NULL:
-				if (Object.class.isAssignableFrom(targetType)) {
-					beanWrapper.setPropertyValue(name, null);
-				}
-				break;
-			case RAW_VALUE:
-				break;
-			case TIMESTAMP:
-				if (targetType.isAssignableFrom(Instant.class)) {
-					beanWrapper.setPropertyValue(name, unmarshal(value, Instant.class));
-				}
-				else if (targetType.isAssignableFrom(Date.class)) {
-					beanWrapper.setPropertyValue(name,
-							Date.from(unmarshal(value, Instant.class)));
-				}
-				else if (targetType.isAssignableFrom(Calendar.class)) {
-					beanWrapper.setPropertyValue(name,
-							new Calendar.Builder()
-									.setInstant(
-											Date.from(unmarshal(value, Instant.class)))
-									.build());
-				}
-				else if (targetType.isAssignableFrom(java.sql.Timestamp.class)) {
-					beanWrapper.setPropertyValue(name,
-							((TimestampValue) value).get().toSqlTimestamp());
-				}
-				else if (targetType.isAssignableFrom(LocalDateTime.class)) {
-					beanWrapper.setPropertyValue(name, ((TimestampValue) value).get()
-							.toSqlTimestamp().toLocalDateTime());
-				}
-				else if (targetType.isAssignableFrom(OffsetDateTime.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Instant.class).atOffset(ZoneOffset.UTC));
-				}
-				else if (targetType.isAssignableFrom(ZonedDateTime.class)) {
-					beanWrapper.setPropertyValue(name,
-							unmarshal(value, Instant.class).atZone(ZoneOffset.UTC));
-				}
-				else if (targetType.isAssignableFrom(long.class)
-						|| targetType.isAssignableFrom(Long.class)) {
-					beanWrapper.setPropertyValue(name,
-							((TimestampValue) value).get().getSeconds());
-				}
-				break;
+				};
+			}
+			return null;
+		case NULL:
+			if (Object.class.isAssignableFrom(targetType)) {
+				return setter(property, (u, value) -> null);
+			}
+			return null;
+		case TIMESTAMP:
+			if (targetType.isAssignableFrom(Instant.class)) {
+				return setter(property, (u, value) -> u.unmarshal(value, Instant.class));
+			}
+			else if (targetType.isAssignableFrom(Date.class)) {
+				return setter(property,
+						(u, value) -> Date.from(u.unmarshal(value, Instant.class)));
+			}
+			else if (targetType.isAssignableFrom(Calendar.class)) {
+				return setter(property, (u, value) -> new Calendar.Builder()
+						.setInstant(Date.from(u.unmarshal(value, Instant.class)))
+						.build());
+			}
+			else if (targetType.isAssignableFrom(java.sql.Timestamp.class)) {
+				return setter(property,
+						(u, value) -> ((TimestampValue) value).get().toSqlTimestamp());
 			}
+			else if (targetType.isAssignableFrom(LocalDateTime.class)) {
+				return setter(property, (u, value) -> ((TimestampValue) value).get()
+						.toSqlTimestamp().toLocalDateTime());
+			}
+			else if (targetType.isAssignableFrom(OffsetDateTime.class)) {
+				return setter(property, (u, value) -> u
+						.unmarshal(value, Instant.class).atOffset(ZoneOffset.UTC));
+			}
+			else if (targetType.isAssignableFrom(ZonedDateTime.class)) {
+				return setter(property, (u, value) -> u
+						.unmarshal(value, Instant.class).atZone(ZoneOffset.UTC));
+			}
+			else if (isAssignableFrom(targetType, Long.class, long.class)) {
+				return setter(property,
+						(u, value) -> ((TimestampValue) value).get().getSeconds());
+			}
+			return null;
+		case KEY:
+		case RAW_VALUE:
+		default:
+			return null;
 		}
 	}
 }
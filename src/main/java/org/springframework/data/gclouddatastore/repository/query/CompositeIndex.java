@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.cloud.datastore.StructuredQuery;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Composite index of a kind, in the form of an {@code index.yaml} entry.
+ */
+@EqualsAndHashCode
+public final class CompositeIndex {
+
+	private final String kind;
+
+	private final boolean ancestor;
+
+	private final List<StructuredQuery.OrderBy> properties;
+
+	public CompositeIndex(String kind, boolean ancestor,
+			List<StructuredQuery.OrderBy> properties) {
+		this.kind = kind;
+		this.ancestor = ancestor;
+		this.properties = Collections.unmodifiableList(new ArrayList<>(properties));
+	}
+
+	public String getKind() {
+		return this.kind;
+	}
+
+	public boolean isAncestor() {
+		return this.ancestor;
+	}
+
+	public List<StructuredQuery.OrderBy> getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * Returns the entry as it appears in the {@code indexes} list of
+	 * {@code index.yaml}.
+	 */
+	public String toYaml() {
+		StringBuilder yaml = new StringBuilder();
+		yaml.append("- kind: ").append(this.kind).append('\n');
+		if (this.ancestor) {
+			yaml.append("  ancestor: yes\n");
+		}
+		yaml.append("  properties:\n");
+		for (StructuredQuery.OrderBy property : this.properties) {
+			yaml.append("  - name: ").append(property.getProperty()).append('\n');
+			if (property.getDirection() == StructuredQuery.OrderBy.Direction.DESCENDING) {
+				yaml.append("    direction: desc\n");
+			}
+		}
+		return yaml.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toYaml();
+	}
+}
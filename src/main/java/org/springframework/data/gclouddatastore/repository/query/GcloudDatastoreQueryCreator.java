@@ -17,79 +17,191 @@
 package org.springframework.data.gclouddatastore.repository.query;
 
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.stream.StreamSupport;
 
-import com.google.cloud.datastore.Datastore;
+import com.google.cloud.Timestamp;
+import com.google.cloud.datastore.Blob;
+import com.google.cloud.datastore.BlobValue;
 import com.google.cloud.datastore.DatastoreOptions;
+import com.google.cloud.datastore.DoubleValue;
 import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.EntityValue;
 import com.google.cloud.datastore.Key;
-import com.google.cloud.datastore.KeyFactory;
-import com.google.cloud.datastore.PathElement;
+import com.google.cloud.datastore.KeyValue;
+import com.google.cloud.datastore.LongValue;
+import com.google.cloud.datastore.NullValue;
 import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.StringValue;
 import com.google.cloud.datastore.StructuredQuery;
+import com.google.cloud.datastore.TimestampValue;
+import com.google.cloud.datastore.Value;
 
 import org.springframework.data.domain.Sort;
 import org.springframework.data.gclouddatastore.repository.Context;
+import org.springframework.data.gclouddatastore.repository.KeyFactoryCache;
+import org.springframework.data.gclouddatastore.repository.Marshaller;
 import org.springframework.data.mapping.PropertyPath;
 import org.springframework.data.repository.query.ParameterAccessor;
 import org.springframework.data.repository.query.parser.AbstractQueryCreator;
 import org.springframework.data.repository.query.parser.Part;
 import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.util.CollectionUtils;
 
 public class GcloudDatastoreQueryCreator extends
 		AbstractQueryCreator<StructuredQuery.Builder<Entity>, StructuredQuery.Filter> {
 
-	DatastoreOptions datastoreOptions;
+	private static final Marshaller MARSHALLER = new Marshaller();
+
+	private static final String MAX_CODE_POINT = new String(
+			Character.toChars(Character.MAX_CODE_POINT));
+
+	KeyFactoryCache keyFactoryCache;
 
 	public GcloudDatastoreQueryCreator(PartTree tree, ParameterAccessor accessor,
 			DatastoreOptions datastoreOptions) {
+		this(tree, accessor, new KeyFactoryCache(datastoreOptions.getService()));
+	}
+
+	public GcloudDatastoreQueryCreator(PartTree tree, ParameterAccessor accessor,
+			KeyFactoryCache keyFactoryCache) {
 		super(tree, accessor);
 
-		this.datastoreOptions = datastoreOptions;
+		this.keyFactoryCache = keyFactoryCache;
 	}
 
 	@Override
 	protected StructuredQuery.Filter create(Part part, Iterator<Object> parameters) {
-		if (part.getType().getKeywords().contains("Equals")) {
-			List<String> segments = new ArrayList<String>();
-			Iterator<PropertyPath> propertyPathIter = part.getProperty().iterator();
-			while (propertyPathIter.hasNext()) {
-				segments.add(propertyPathIter.next().getSegment());
-			}
-			String property = String.join(".", segments);
+		return createFilter(propertyName(part), part.getType(), parameters);
+	}
 
-			Object value = parameters.next();
-			if (value == null) {
-				return StructuredQuery.PropertyFilter.isNull(property);
-			}
-			else if (value instanceof Boolean) {
-				return StructuredQuery.PropertyFilter.eq(property, (Boolean) value);
-			}
-			else if (value instanceof Double || value instanceof Float) {
-				return StructuredQuery.PropertyFilter.eq(property,
-						((Number) value).doubleValue());
-			}
-			else if (value instanceof Number) {
-				return StructuredQuery.PropertyFilter.eq(property,
-						((Number) value).longValue());
-			}
-			else if (value instanceof CharSequence) {
-				return StructuredQuery.PropertyFilter.eq(property,
-						((CharSequence) value).toString());
-			}
-			else {
-				throw new UnsupportedOperationException(
-						"Value type not supported: " + value + " : " + value.getClass());
-			}
+	static String propertyName(Part part) {
+		List<String> segments = new ArrayList<String>();
+		Iterator<PropertyPath> propertyPathIter = part.getProperty().iterator();
+		while (propertyPathIter.hasNext()) {
+			segments.add(propertyPathIter.next().getSegment());
+		}
+		return String.join(".", segments);
+	}
+
+	static StructuredQuery.Filter createFilter(String property, Part.Type type,
+			Iterator<Object> parameters) {
+
+		switch (type) {
+		case SIMPLE_PROPERTY:
+			return eq(property, parameters.next());
+		case TRUE:
+			return StructuredQuery.PropertyFilter.eq(property, true);
+		case FALSE:
+			return StructuredQuery.PropertyFilter.eq(property, false);
+		case IS_NULL:
+			return StructuredQuery.PropertyFilter.isNull(property);
+		case IS_NOT_NULL:
+			// Null sorts before every other value
+			return StructuredQuery.PropertyFilter.gt(property, NullValue.of());
+		case GREATER_THAN:
+		case AFTER:
+			return StructuredQuery.PropertyFilter.gt(property,
+					toValue(parameters.next()));
+		case GREATER_THAN_EQUAL:
+			return StructuredQuery.PropertyFilter.ge(property,
+					toValue(parameters.next()));
+		case LESS_THAN:
+		case BEFORE:
+			return StructuredQuery.PropertyFilter.lt(property,
+					toValue(parameters.next()));
+		case LESS_THAN_EQUAL:
+			return StructuredQuery.PropertyFilter.le(property,
+					toValue(parameters.next()));
+		case BETWEEN:
+			return StructuredQuery.CompositeFilter.and(
+					StructuredQuery.PropertyFilter.ge(property,
+							toValue(parameters.next())),
+					StructuredQuery.PropertyFilter.le(property,
+							toValue(parameters.next())));
+		case STARTING_WITH:
+			String prefix = String.valueOf(parameters.next());
+			return StructuredQuery.CompositeFilter.and(
+					StructuredQuery.PropertyFilter.ge(property, prefix),
+					StructuredQuery.PropertyFilter.lt(property,
+							prefix + MAX_CODE_POINT));
+		default:
+			throw new UnsupportedOperationException("Part type not supported: " + type);
+		}
+	}
+
+	/**
+	 * Creates the alternative filters of one part: one per value for {@code In}, which
+	 * Datastore can only run as separate queries, and a single filter otherwise.
+	 */
+	static List<StructuredQuery.Filter> createFilters(String property, Part.Type type,
+			Iterator<Object> parameters) {
+
+		if (type != Part.Type.IN) {
+			return Collections.singletonList(createFilter(property, type, parameters));
+		}
+
+		Object values = parameters.next();
+		Collection<?> collection;
+		if (values instanceof Collection) {
+			collection = (Collection<?>) values;
+		}
+		else if (values != null && values.getClass().isArray()) {
+			collection = CollectionUtils.arrayToList(values);
 		}
 		else {
+			collection = Collections.singleton(values);
+		}
+		List<StructuredQuery.Filter> filters = new ArrayList<>(collection.size());
+		for (Object value : new LinkedHashSet<>(collection)) {
+			filters.add(eq(property, value));
+		}
+		return filters;
+	}
+
+	private static StructuredQuery.Filter eq(String property, Object value) {
+		if (value == null) {
+			return StructuredQuery.PropertyFilter.isNull(property);
+		}
+		return StructuredQuery.PropertyFilter.eq(property, toValue(value));
+	}
+
+	static Value<?> toValue(Object value) {
+		if (value instanceof Value) {
+			return (Value<?>) value;
+		}
+		else if (value instanceof Key) {
+			return KeyValue.of((Key) value);
+		}
+		else if (value instanceof Timestamp) {
+			return TimestampValue.of((Timestamp) value);
+		}
+		else if (value instanceof Blob) {
+			return BlobValue.of((Blob) value);
+		}
+		else if (value instanceof Double || value instanceof Float) {
+			return DoubleValue.of(((Number) value).doubleValue());
+		}
+		else if (value instanceof Number) {
+			return LongValue.of(((Number) value).longValue());
+		}
+		else if (value instanceof CharSequence || value instanceof Character) {
+			return StringValue.of(value.toString());
+		}
+		else if (value instanceof Enum) {
+			return StringValue.of(((Enum<?>) value).name());
+		}
+
+		Value<?> datastoreValue = MARSHALLER.toDatastoreValue(value);
+		if (datastoreValue instanceof EntityValue) {
 			throw new UnsupportedOperationException(
-					"Part type not supported: " + part.getType());
+					"Value type not supported: " + value + " : " + value.getClass());
 		}
+		return datastoreValue;
 	}
 
 	@Override
@@ -103,24 +215,15 @@ public class GcloudDatastoreQueryCreator extends
 	protected StructuredQuery.Filter or(StructuredQuery.Filter filter1,
 			StructuredQuery.Filter filter2) {
 
+		// Datastore has no disjunction; GcloudDatastoreQueryPlan runs one query per part
 		throw new UnsupportedOperationException(
-				"Or operator in query method not supported");
+				"Or operator cannot be expressed as a single Datastore query");
 	}
 
 	@Override
 	protected StructuredQuery.Builder<Entity> complete(StructuredQuery.Filter filter,
 			Sort sort) {
-		if (sort == null) {
-			return Query.newEntityQueryBuilder()
-					.setFilter(setAncestorFilter(filter));
-		}
-
-		StructuredQuery.OrderBy[] orderBy = StreamSupport
-				.stream(sort.spliterator(), false)
-				.map(order -> order.isAscending()
-						? StructuredQuery.OrderBy.asc(order.getProperty())
-						: StructuredQuery.OrderBy.desc(order.getProperty()))
-				.toArray(len -> new StructuredQuery.OrderBy[len]);
+		StructuredQuery.OrderBy[] orderBy = toOrderBy(sort);
 		if (orderBy.length == 0) {
 			return Query.newEntityQueryBuilder()
 					.setFilter(setAncestorFilter(filter));
@@ -132,22 +235,29 @@ public class GcloudDatastoreQueryCreator extends
 		}
 	}
 
+	static StructuredQuery.OrderBy[] toOrderBy(Sort sort) {
+		if (sort == null) {
+			return new StructuredQuery.OrderBy[0];
+		}
+		return StreamSupport.stream(sort.spliterator(), false)
+				.map(order -> order.isAscending()
+						? StructuredQuery.OrderBy.asc(order.getProperty())
+						: StructuredQuery.OrderBy.desc(order.getProperty()))
+				.toArray(len -> new StructuredQuery.OrderBy[len]);
+	}
+
 	protected StructuredQuery.Filter setAncestorFilter(StructuredQuery.Filter filter) {
-		Datastore datastore = datastoreOptions.getService();
+		return setAncestorFilter(this.keyFactoryCache, filter);
+	}
 
-		Deque<PathElement> ancestors = Context.getAncestors();
-		Deque<PathElement> init = new LinkedList<>();
-		init.addAll(ancestors);
-		PathElement last = init.pollLast();
+	static StructuredQuery.Filter setAncestorFilter(KeyFactoryCache keyFactoryCache,
+			StructuredQuery.Filter filter) {
 
-		if (last == null) {
+		Key key = keyFactoryCache.getAncestorKey(Context.getAncestors());
+		if (key == null) {
 			return filter;
 		}
 		else {
-			KeyFactory keyFactory = datastore.newKeyFactory();
-			keyFactory.addAncestors(init).setKind(last.getKind());
-			Key key = last.hasId()
-					? keyFactory.newKey(last.getId()) : keyFactory.newKey(last.getName());
 			StructuredQuery.Filter ancestorFilter = StructuredQuery.PropertyFilter.hasAncestor(key);
 			if (filter == null) {
 				return ancestorFilter;
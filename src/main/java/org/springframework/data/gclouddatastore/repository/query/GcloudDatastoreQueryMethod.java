@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Future;
+
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * {@link QueryMethod} that also knows whether the method returns a future and should be
+ * executed asynchronously.
+ */
+public class GcloudDatastoreQueryMethod extends QueryMethod {
+
+	private final Class<?> returnType;
+
+	public GcloudDatastoreQueryMethod(Method method, RepositoryMetadata metadata,
+			ProjectionFactory factory) {
+		super(method, metadata, factory);
+		this.returnType = method.getReturnType();
+	}
+
+	public boolean isAsync() {
+		return Future.class.isAssignableFrom(this.returnType);
+	}
+
+	public boolean isListenableFuture() {
+		return ListenableFuture.class.isAssignableFrom(this.returnType);
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.cloud.datastore.StructuredQuery;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.gclouddatastore.repository.KeyFactoryCache;
+import org.springframework.data.repository.query.ParameterAccessor;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+
+/**
+ * Immutable form of a derived query, compiled once from its {@link PartTree}. Binding
+ * parameters to a plan only builds the Datastore filters; the tree walk, property path
+ * resolution and static sort are done up front.
+ */
+public final class GcloudDatastoreQueryPlan {
+
+	private final String kind;
+
+	private final List<List<Criterion>> orParts;
+
+	private final StructuredQuery.OrderBy[] orderBy;
+
+	private final Integer maxResults;
+
+	private GcloudDatastoreQueryPlan(String kind, List<List<Criterion>> orParts,
+			StructuredQuery.OrderBy[] orderBy, Integer maxResults) {
+		this.kind = kind;
+		this.orParts = orParts;
+		this.orderBy = orderBy;
+		this.maxResults = maxResults;
+	}
+
+	public static GcloudDatastoreQueryPlan compile(PartTree tree, String kind) {
+		List<List<Criterion>> orParts = new ArrayList<>();
+		for (PartTree.OrPart orPart : tree) {
+			List<Criterion> criteria = new ArrayList<>();
+			for (Part part : orPart) {
+				criteria.add(new Criterion(GcloudDatastoreQueryCreator.propertyName(part),
+						part.getType()));
+			}
+			orParts.add(Collections.unmodifiableList(criteria));
+		}
+		return new GcloudDatastoreQueryPlan(kind, Collections.unmodifiableList(orParts),
+				GcloudDatastoreQueryCreator.toOrderBy(tree.getSort()),
+				tree.isLimiting() ? tree.getMaxResults() : null);
+	}
+
+	public String getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * Returns whether the property is compared with equality, which Datastore does not
+	 * allow for projected properties.
+	 */
+	public boolean isEqualityFiltered(String property) {
+		for (List<Criterion> criteria : this.orParts) {
+			for (Criterion criterion : criteria) {
+				if (criterion.property.equals(property) && isEquality(criterion.type)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the limit of a {@code First}/{@code Top} query method, or {@code null}.
+	 */
+	public Integer getMaxResults() {
+		return this.maxResults;
+	}
+
+	/**
+	 * Binds the parameters and the ancestors of the current
+	 * {@link org.springframework.data.gclouddatastore.repository.Context} into a filter.
+	 * Fails for plans that need more than one query.
+	 */
+	public StructuredQuery.Filter bindFilter(ParameterAccessor accessor,
+			KeyFactoryCache keyFactoryCache) {
+
+		List<StructuredQuery.Filter> filters = bindFilters(accessor, keyFactoryCache);
+		if (filters.size() != 1) {
+			throw new UnsupportedOperationException(
+					"Query method needs " + filters.size() + " queries");
+		}
+		return filters.get(0);
+	}
+
+	/**
+	 * Binds the parameters and the ancestors of the current
+	 * {@link org.springframework.data.gclouddatastore.repository.Context} into one
+	 * filter per Datastore query to run. Each {@code Or} part and each value of an
+	 * {@code In} part needs its own query; an empty {@code In} yields no queries at all.
+	 */
+	public List<StructuredQuery.Filter> bindFilters(ParameterAccessor accessor,
+			KeyFactoryCache keyFactoryCache) {
+
+		if (this.orParts.isEmpty()) {
+			return Collections.singletonList(
+					GcloudDatastoreQueryCreator.setAncestorFilter(keyFactoryCache, null));
+		}
+
+		// Identical branches would only return the same results twice
+		Set<StructuredQuery.Filter> result = new LinkedHashSet<>();
+		Iterator<Object> parameters = accessor.iterator();
+		for (List<Criterion> criteria : this.orParts) {
+			List<List<StructuredQuery.Filter>> conjunctions = new ArrayList<>();
+			conjunctions.add(Collections.emptyList());
+			for (Criterion criterion : criteria) {
+				List<StructuredQuery.Filter> alternatives = GcloudDatastoreQueryCreator
+						.createFilters(criterion.property, criterion.type, parameters);
+				List<List<StructuredQuery.Filter>> expanded = new ArrayList<>(
+						conjunctions.size() * alternatives.size());
+				for (List<StructuredQuery.Filter> conjunction : conjunctions) {
+					for (StructuredQuery.Filter alternative : alternatives) {
+						List<StructuredQuery.Filter> filters = new ArrayList<>(conjunction);
+						filters.add(alternative);
+						expanded.add(filters);
+					}
+				}
+				conjunctions = expanded;
+			}
+
+			for (List<StructuredQuery.Filter> conjunction : conjunctions) {
+				StructuredQuery.Filter filter = conjunction.get(0);
+				if (conjunction.size() > 1) {
+					filter = StructuredQuery.CompositeFilter.and(filter,
+							conjunction.subList(1, conjunction.size())
+									.toArray(new StructuredQuery.Filter[0]));
+				}
+				result.add(GcloudDatastoreQueryCreator.setAncestorFilter(keyFactoryCache,
+						filter));
+			}
+		}
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * Returns the static sort order followed by the dynamic one of the accessor.
+	 */
+	public StructuredQuery.OrderBy[] getOrderBy(ParameterAccessor accessor) {
+		StructuredQuery.OrderBy[] orderBy = this.orderBy;
+		Sort dynamicSort = accessor.getSort();
+		if (dynamicSort != null) {
+			StructuredQuery.OrderBy[] dynamicOrderBy = GcloudDatastoreQueryCreator
+					.toOrderBy(dynamicSort);
+			orderBy = Arrays.copyOf(orderBy, orderBy.length + dynamicOrderBy.length);
+			System.arraycopy(dynamicOrderBy, 0, orderBy, this.orderBy.length,
+					dynamicOrderBy.length);
+		}
+		return orderBy;
+	}
+
+	/**
+	 * Sets kind, bound filter, sort order and limit on the given builder.
+	 */
+	public <V> StructuredQuery.Builder<V> bind(StructuredQuery.Builder<V> builder,
+			ParameterAccessor accessor, KeyFactoryCache keyFactoryCache) {
+
+		return bind(builder, bindFilter(accessor, keyFactoryCache), accessor);
+	}
+
+	/**
+	 * Sets kind, the given filter, sort order and limit on the given builder.
+	 */
+	public <V> StructuredQuery.Builder<V> bind(StructuredQuery.Builder<V> builder,
+			StructuredQuery.Filter filter, ParameterAccessor accessor) {
+
+		builder.setKind(this.kind).setFilter(filter);
+
+		StructuredQuery.OrderBy[] orderBy = getOrderBy(accessor);
+		if (orderBy.length > 0) {
+			builder.setOrderBy(orderBy[0],
+					Arrays.copyOfRange(orderBy, 1, orderBy.length));
+		}
+		if (this.maxResults != null) {
+			builder.setLimit(this.maxResults);
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns the composite indexes the queries of this plan need, none when the
+	 * built-in single property indexes suffice. Dynamic sorts are not known up front
+	 * and are not covered.
+	 *
+	 * @param ancestor whether the queries run in a
+	 * {@link org.springframework.data.gclouddatastore.repository.Context} with ancestors
+	 * @param sorted whether the static sort is applied, which it is not for counts
+	 * @param projection the projected properties, or {@code null}
+	 */
+	public List<CompositeIndex> getRequiredIndexes(boolean ancestor, boolean sorted,
+			String[] projection) {
+
+		List<List<Criterion>> orParts = this.orParts.isEmpty()
+				? Collections.singletonList(Collections.emptyList()) : this.orParts;
+		Set<CompositeIndex> indexes = new LinkedHashSet<>();
+		for (List<Criterion> criteria : orParts) {
+			List<StructuredQuery.OrderBy> properties = new ArrayList<>();
+			Set<String> equalityProperties = new LinkedHashSet<>();
+			String inequalityProperty = null;
+			for (Criterion criterion : criteria) {
+				if (isEquality(criterion.type)) {
+					equalityProperties.add(criterion.property);
+				}
+				else if (inequalityProperty == null) {
+					inequalityProperty = criterion.property;
+				}
+			}
+			for (String property : equalityProperties) {
+				properties.add(StructuredQuery.OrderBy.asc(property));
+			}
+
+			// Equality filtered properties need no sort, and are indexed first anyway
+			Set<String> orderedProperties = new LinkedHashSet<>();
+			List<StructuredQuery.OrderBy> orderBy = sorted ? Arrays.asList(this.orderBy)
+					: Collections.emptyList();
+			if (inequalityProperty != null && (orderBy.isEmpty()
+					|| !orderBy.get(0).getProperty().equals(inequalityProperty))) {
+				// Datastore sorts by the inequality property first
+				orderedProperties.add(inequalityProperty);
+				properties.add(StructuredQuery.OrderBy.asc(inequalityProperty));
+			}
+			for (StructuredQuery.OrderBy order : orderBy) {
+				if (!equalityProperties.contains(order.getProperty())
+						&& orderedProperties.add(order.getProperty())) {
+					properties.add(order);
+				}
+			}
+			if (projection != null) {
+				for (String property : projection) {
+					if (!equalityProperties.contains(property)
+							&& orderedProperties.add(property)) {
+						properties.add(StructuredQuery.OrderBy.asc(property));
+					}
+				}
+			}
+
+			// Equality filters alone are merged from the built-in indexes
+			if (!orderedProperties.isEmpty() && (ancestor || properties.size() > 1)) {
+				indexes.add(new CompositeIndex(this.kind, ancestor, properties));
+			}
+		}
+		return new ArrayList<>(indexes);
+	}
+
+	private static boolean isEquality(Part.Type type) {
+		switch (type) {
+		case SIMPLE_PROPERTY:
+		case TRUE:
+		case FALSE:
+		case IS_NULL:
+		case IN:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	static final class Criterion {
+
+		final String property;
+
+		final Part.Type type;
+
+		Criterion(String property, Part.Type type) {
+			this.property = property;
+			this.type = type;
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.google.cloud.datastore.Key;
+
+/**
+ * Merges the results of several queries, entities or keys, dropping results whose key
+ * was already returned. With a comparator the sources are expected to be sorted by it
+ * and are merged lazily, one result at a time; without one they are concatenated.
+ */
+final class MergingQueryIterator implements Iterator<Object> {
+
+	private final PriorityQueue<Source> heads;
+
+	private final Iterator<? extends Iterator<?>> remainingSources;
+
+	private final Set<Key> seenKeys = new HashSet<>();
+
+	private Iterator<?> currentSource;
+
+	private Object next;
+
+	MergingQueryIterator(List<? extends Iterator<?>> sources,
+			Comparator<Object> comparator) {
+
+		if (comparator != null) {
+			this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+					(source1, source2) -> comparator.compare(source1.head, source2.head));
+			for (Iterator<?> source : sources) {
+				if (source.hasNext()) {
+					this.heads.add(new Source(source));
+				}
+			}
+			this.remainingSources = null;
+		}
+		else {
+			this.heads = null;
+			this.remainingSources = sources.iterator();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (this.next == null) {
+			Object candidate = this.heads != null ? pollHead() : pollConcatenated();
+			if (candidate == null) {
+				return false;
+			}
+			if (this.seenKeys.add(ResultComparator.keyOf(candidate))) {
+				this.next = candidate;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Object next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Object result = this.next;
+		this.next = null;
+		return result;
+	}
+
+	private Object pollHead() {
+		Source source = this.heads.poll();
+		if (source == null) {
+			return null;
+		}
+		Object head = source.head;
+		if (source.iterator.hasNext()) {
+			source.head = source.iterator.next();
+			this.heads.add(source);
+		}
+		return head;
+	}
+
+	private Object pollConcatenated() {
+		while (this.currentSource == null || !this.currentSource.hasNext()) {
+			if (!this.remainingSources.hasNext()) {
+				return null;
+			}
+			this.currentSource = this.remainingSources.next();
+		}
+		return this.currentSource.next();
+	}
+
+	private static final class Source {
+
+		private final Iterator<?> iterator;
+
+		private Object head;
+
+		Source(Iterator<?> iterator) {
+			this.iterator = iterator;
+			this.head = iterator.next();
+		}
+	}
+}
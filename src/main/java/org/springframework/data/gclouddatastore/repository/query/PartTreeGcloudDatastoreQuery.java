@@ -0,0 +1,674 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyQuery;
+import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.QueryResults;
+import com.google.cloud.datastore.StructuredQuery;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.gclouddatastore.repository.Context;
+import org.springframework.data.gclouddatastore.repository.CountStrategy;
+import org.springframework.data.gclouddatastore.repository.CursorPage;
+import org.springframework.data.gclouddatastore.repository.CursorPageable;
+import org.springframework.data.gclouddatastore.repository.CursorSlice;
+import org.springframework.data.gclouddatastore.repository.EntityCache;
+import org.springframework.data.gclouddatastore.repository.GcloudDatastoreEntityInformation;
+import org.springframework.data.gclouddatastore.repository.KeyFactoryCache;
+import org.springframework.data.gclouddatastore.repository.PrefetchingQueryIterator;
+import org.springframework.data.gclouddatastore.repository.QueryResultCache;
+import org.springframework.data.gclouddatastore.repository.Unmarshaller;
+import org.springframework.data.repository.query.ParameterAccessor;
+import org.springframework.data.repository.query.ParametersParameterAccessor;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.data.repository.query.ResultProcessor;
+import org.springframework.data.repository.query.ReturnedType;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.NumberUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.concurrent.CompletableToListenableFutureAdapter;
+
+/**
+ * {@link RepositoryQuery} for derived query methods. The method name is parsed and
+ * compiled into a {@link GcloudDatastoreQueryPlan} once, when the repository is
+ * created.
+ */
+public class PartTreeGcloudDatastoreQuery implements RepositoryQuery {
+
+	public static final int DEFAULT_SUB_QUERY_CONCURRENCY = 8;
+
+	private static final int MAX_LOOKUP_SIZE = 1000;
+
+	private static final String KEY_PROPERTY_NAME = "__key__";
+
+	private final QueryMethod queryMethod;
+
+	private final Datastore datastore;
+
+	private final KeyFactoryCache keyFactoryCache;
+
+	private final CountStrategy countStrategy;
+
+	private final ResultProcessor resultProcessor;
+
+	private final Class<?> domainType;
+
+	private final PartTree tree;
+
+	private final GcloudDatastoreQueryPlan plan;
+
+	private final Unmarshaller unmarshaller = new Unmarshaller();
+
+	private final Executor asyncExecutor;
+
+	private final boolean singleResult;
+
+	private final String[] projection;
+
+	private final Function<Key, Object> keyMapper;
+
+	private int queryBatchSize;
+
+	private int subQueryConcurrency = DEFAULT_SUB_QUERY_CONCURRENCY;
+
+	private QueryResultCache resultCache;
+
+	private EntityCache entityCache;
+
+	public PartTreeGcloudDatastoreQuery(QueryMethod queryMethod, Datastore datastore,
+			KeyFactoryCache keyFactoryCache, CountStrategy countStrategy) {
+		this(queryMethod, datastore, keyFactoryCache, countStrategy, null);
+	}
+
+	public PartTreeGcloudDatastoreQuery(QueryMethod queryMethod, Datastore datastore,
+			KeyFactoryCache keyFactoryCache, CountStrategy countStrategy,
+			Executor asyncExecutor) {
+
+		this.queryMethod = queryMethod;
+		this.datastore = datastore;
+		this.keyFactoryCache = keyFactoryCache;
+		this.countStrategy = countStrategy;
+		this.asyncExecutor = asyncExecutor;
+		this.resultProcessor = queryMethod.getResultProcessor();
+		this.domainType = this.resultProcessor.getReturnedType().getDomainType();
+		this.tree = new PartTree(queryMethod.getName(), this.domainType);
+		this.plan = GcloudDatastoreQueryPlan.compile(this.tree,
+				this.domainType.getSimpleName());
+		this.singleResult = !queryMethod.isCollectionQuery()
+				&& !queryMethod.isStreamQuery() && !queryMethod.isSliceQuery()
+				&& !queryMethod.isPageQuery();
+		this.keyMapper = resolveKeyMapper(queryMethod.getReturnedObjectType(),
+				this.domainType);
+		this.projection = this.keyMapper != null ? null
+				: resolveProjection(this.resultProcessor.getReturnedType(), this.plan);
+	}
+
+	/**
+	 * Sets the batch size for collection and stream results. A positive size fetches
+	 * the results in batches of that size, each prefetched while the previous one is
+	 * consumed.
+	 */
+	public void setQueryBatchSize(int queryBatchSize) {
+		this.queryBatchSize = queryBatchSize;
+	}
+
+	/**
+	 * Sets how many of the queries of an {@code Or} or {@code In} query method run at
+	 * the same time.
+	 */
+	public void setSubQueryConcurrency(int subQueryConcurrency) {
+		Assert.isTrue(subQueryConcurrency > 0, "Sub-query concurrency must be positive!");
+
+		this.subQueryConcurrency = subQueryConcurrency;
+	}
+
+	/**
+	 * Sets the cache for the keys of collection, stream and single results, or
+	 * {@code null} to always run the query.
+	 */
+	public void setResultCache(QueryResultCache resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * Sets the cache to read the entities of cached results from, or {@code null}.
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	/**
+	 * Returns the composite indexes this query method needs.
+	 *
+	 * @param ancestor whether the method is called in a
+	 * {@link Context} with ancestors
+	 */
+	public List<CompositeIndex> getRequiredIndexes(boolean ancestor) {
+		return this.plan.getRequiredIndexes(ancestor,
+				!this.tree.isCountProjection() && !this.tree.isExistsProjection(),
+				this.projection);
+	}
+
+	/**
+	 * Returns how to map the keys of a keys-only query, or {@code null} when the method
+	 * returns neither {@link Key}s nor ids.
+	 */
+	static Function<Key, Object> resolveKeyMapper(Class<?> returnedObjectType,
+			Class<?> domainType) {
+
+		if (Key.class.equals(returnedObjectType)) {
+			return key -> key;
+		}
+		if (!ClassUtils.isPrimitiveOrWrapper(returnedObjectType)
+				&& !String.class.equals(returnedObjectType)) {
+			return null;
+		}
+		Class<?> boxedIdType = ClassUtils.resolvePrimitiveIfNecessary(
+				new GcloudDatastoreEntityInformation<>(domainType).getIdType());
+		if (!boxedIdType.equals(
+				ClassUtils.resolvePrimitiveIfNecessary(returnedObjectType))) {
+			return null;
+		}
+		if (Number.class.isAssignableFrom(boxedIdType)) {
+			return key -> NumberUtils.convertNumberToTargetClass(key.getId(),
+					boxedIdType.asSubclass(Number.class));
+		}
+		return key -> key.hasName() ? key.getName() : String.valueOf(key.getId());
+	}
+
+	/**
+	 * Returns the properties of a closed projection, or {@code null} when the whole
+	 * entity has to be read, e.g. because a projected property is compared with
+	 * equality.
+	 */
+	static String[] resolveProjection(ReturnedType returnedType,
+			GcloudDatastoreQueryPlan plan) {
+
+		if (!returnedType.isProjecting()) {
+			return null;
+		}
+		List<String> properties = returnedType.getInputProperties();
+		if (properties.isEmpty()) {
+			return null;
+		}
+		for (String property : properties) {
+			if (plan.isEqualityFiltered(property)) {
+				return null;
+			}
+		}
+		return properties.toArray(new String[properties.size()]);
+	}
+
+	@Override
+	public Object execute(Object[] parameters) {
+		if (!(this.queryMethod instanceof GcloudDatastoreQueryMethod)
+				|| !((GcloudDatastoreQueryMethod) this.queryMethod).isAsync()) {
+			return executeQuery(parameters);
+		}
+
+		Assert.state(this.asyncExecutor != null,
+				"No executor configured for asynchronous query methods!");
+		CompletableFuture<Object> future = CompletableFuture.supplyAsync(
+				Context.propagate(() -> executeQuery(parameters)), this.asyncExecutor);
+		if (((GcloudDatastoreQueryMethod) this.queryMethod).isListenableFuture()) {
+			return new CompletableToListenableFutureAdapter<>(future);
+		}
+		return future;
+	}
+
+	private Object executeQuery(Object[] parameters) {
+		ParameterAccessor accessor = new ParametersParameterAccessor(
+				this.queryMethod.getParameters(), parameters);
+		List<StructuredQuery.Filter> filters = this.plan.bindFilters(accessor,
+				this.keyFactoryCache);
+
+		if (this.tree.isCountProjection()) {
+			return count(filters);
+		}
+		if (this.tree.isExistsProjection()) {
+			List<StructuredQuery<?>> queries = new ArrayList<>(filters.size());
+			for (StructuredQuery.Filter filter : filters) {
+				queries.add(Query.newKeyQueryBuilder().setKind(this.plan.getKind())
+						.setFilter(filter).setLimit(1).build());
+			}
+			return new MergingQueryIterator(run(queries), null).hasNext();
+		}
+
+		if (this.queryMethod.isSliceQuery() || this.queryMethod.isPageQuery()) {
+			return executePaged(accessor, filters);
+		}
+
+		Integer limit = this.singleResult ? Integer.valueOf(1)
+				: this.plan.getMaxResults();
+		Iterator<?> results;
+		if (this.resultCache != null) {
+			results = getCachedResults(accessor, filters, limit, parameters);
+		}
+		else if (filters.size() == 1 && this.queryBatchSize > 0 && !this.singleResult) {
+			PrefetchingQueryIterator<?, Object> iterator = prefetch(
+					newQuery(accessor, filters.get(0), limit));
+			if (this.queryMethod.isCollectionQuery()) {
+				List<Object> result = new ArrayList<Object>();
+				iterator.forEachRemaining(result::add);
+				return processResult(result);
+			}
+			return processResult(iterator.stream());
+		}
+		else {
+			results = run(accessor, filters, limit);
+		}
+
+		if (this.queryMethod.isCollectionQuery()) {
+			List<Object> result = new ArrayList<Object>();
+			while (results.hasNext()) {
+				result.add(toResult(results.next()));
+			}
+			return processResult(result);
+		}
+		else if (this.queryMethod.isStreamQuery()) {
+			Iterable<Object> iterable = new Iterable<Object>() {
+				@Override
+				public Iterator<Object> iterator() {
+					return new Iterator<Object>() {
+						@Override
+						public boolean hasNext() {
+							return results.hasNext();
+						}
+
+						@Override
+						public Object next() {
+							return toResult(results.next());
+						}
+					};
+				}
+			};
+			Stream<Object> result = StreamSupport.stream(iterable.spliterator(), false);
+			return processResult(result);
+		}
+		else if (this.queryMethod.isQueryForEntity()) {
+			Object result;
+			if (!results.hasNext()) {
+				result = null;
+			}
+			else {
+				result = toResult(results.next());
+			}
+			return processResult(result);
+		}
+		throw new UnsupportedOperationException("Query method not supported.");
+	}
+
+	private Object executePaged(ParameterAccessor accessor,
+			List<StructuredQuery.Filter> filters) {
+
+		Pageable pageable = accessor.getPageable();
+		boolean sliceQuery = this.queryMethod.isSliceQuery();
+		Integer maxResults = this.plan.getMaxResults();
+		int pageSize = maxResults != null ? maxResults : Integer.MAX_VALUE;
+		Cursor startCursor = null;
+		if (pageable != null) {
+			// First/Top caps the page size
+			pageSize = Math.min(pageSize, pageable.getPageSize());
+			if (pageable instanceof CursorPageable) {
+				startCursor = ((CursorPageable) pageable).getCursor();
+			}
+		}
+		// One extra result tells a slice whether there is a next one
+		int limit = sliceQuery ? pageSize + 1 : pageSize;
+
+		Iterator<?> results;
+		Cursor endCursor = null;
+		if (filters.size() != 1) {
+			// Merged results have no cursor; skip the offset on the client
+			int offset = pageable == null ? 0 : pageable.getOffset();
+			results = fanOut(accessor, filters, pageable == null ? null : offset + limit);
+			for (int i = 0; i < offset && results.hasNext(); i++) {
+				results.next();
+			}
+			startCursor = null;
+		}
+		else {
+			StructuredQuery.Builder<?> builder = newQueryBuilder(accessor,
+					filters.get(0));
+			if (pageable != null) {
+				if (startCursor != null) {
+					builder.setStartCursor(startCursor);
+				}
+				else if (pageable.getOffset() > 0) {
+					builder.setOffset(pageable.getOffset());
+				}
+				builder.setLimit(limit);
+			}
+			results = this.datastore.run(builder.build());
+		}
+
+		List<Object> content = new ArrayList<>();
+		while (content.size() < pageSize && results.hasNext()) {
+			content.add(toResult(results.next()));
+		}
+		if (results instanceof QueryResults) {
+			// Read before hasNext(), which moves the cursor past the look-ahead result
+			endCursor = ((QueryResults<?>) results).getCursorAfter();
+		}
+
+		if (sliceQuery) {
+			return processResult(
+					new CursorSlice<>(content, pageable, results.hasNext(), endCursor));
+		}
+
+		// Only count when the page alone does not determine the total
+		long total;
+		if (pageable == null) {
+			total = content.size();
+		}
+		else if (!content.isEmpty() && content.size() < pageSize) {
+			total = pageable.getOffset() + content.size();
+		}
+		else if (content.isEmpty() && startCursor == null
+				&& pageable.getOffset() == 0) {
+			total = 0;
+		}
+		else {
+			total = count(filters);
+		}
+		return processResult(new CursorPage<>(content, pageable, total, endCursor));
+	}
+
+	private Iterator<?> run(ParameterAccessor accessor,
+			List<StructuredQuery.Filter> filters, Integer limit) {
+
+		if (filters.size() != 1) {
+			return fanOut(accessor, filters, limit);
+		}
+		return this.datastore.run(newQuery(accessor, filters.get(0), limit));
+	}
+
+	/**
+	 * Returns the results for the keys cached for the same parameters and ancestors, or
+	 * runs the query and caches the keys of its results.
+	 */
+	private Iterator<?> getCachedResults(ParameterAccessor accessor,
+			List<StructuredQuery.Filter> filters, Integer limit, Object[] parameters) {
+
+		List<Object> values = new ArrayList<>(parameters.length);
+		for (Object parameter : parameters) {
+			values.add(ObjectUtils.isArray(parameter)
+					? CollectionUtils.arrayToList(parameter) : parameter);
+		}
+		List<Object> cacheKey = Arrays.asList(values,
+				new ArrayList<>(Context.getAncestors()));
+		List<Key> keys = this.resultCache.get(cacheKey);
+		if (keys != null) {
+			return load(keys).iterator();
+		}
+
+		long stamp = this.resultCache.stamp();
+		long entityStamp = this.entityCache != null ? this.entityCache.stamp() : 0;
+		List<Object> results = new ArrayList<>();
+		run(accessor, filters, limit).forEachRemaining(results::add);
+		keys = new ArrayList<>(results.size());
+		for (Object result : results) {
+			keys.add(ResultComparator.keyOf(result));
+			// Projections are partial entities
+			if (this.entityCache != null && result instanceof Entity
+					&& this.projection == null) {
+				this.entityCache.putIfUnmodified((Entity) result, entityStamp);
+			}
+		}
+		this.resultCache.putIfUnmodified(cacheKey, keys, stamp);
+		return results.iterator();
+	}
+
+	/**
+	 * Reads the entities of cached keys, from the entity cache where possible. Entities
+	 * deleted since are skipped.
+	 */
+	private List<?> load(List<Key> keys) {
+		if (this.keyMapper != null) {
+			return keys;
+		}
+		Map<Key, Entity> found = new HashMap<>();
+		List<Key> misses = new ArrayList<>();
+		for (Key key : keys) {
+			Entity entity = this.entityCache != null ? this.entityCache.get(key) : null;
+			if (entity != null) {
+				found.put(key, entity);
+			}
+			else {
+				misses.add(key);
+			}
+		}
+		long stamp = this.entityCache != null ? this.entityCache.stamp() : 0;
+		for (int i = 0; i < misses.size(); i += MAX_LOOKUP_SIZE) {
+			for (Entity entity : this.datastore.fetch(
+					misses.subList(i, Math.min(i + MAX_LOOKUP_SIZE, misses.size())))) {
+				if (entity != null) {
+					found.put(entity.getKey(), entity);
+					if (this.entityCache != null) {
+						this.entityCache.putIfUnmodified(entity, stamp);
+					}
+				}
+			}
+		}
+		List<Entity> entities = new ArrayList<>(keys.size());
+		for (Key key : keys) {
+			Entity entity = found.get(key);
+			if (entity != null) {
+				entities.add(entity);
+			}
+		}
+		return entities;
+	}
+
+	/**
+	 * Runs one query per filter and merges their results, dropping duplicate keys. Each
+	 * query is sorted by Datastore, so a sorted merge only has to look at the next
+	 * result of every query. Keys carry no property values to merge by, so a method
+	 * returning keys or ids sorted by a property reads entities instead.
+	 */
+	private Iterator<Object> fanOut(ParameterAccessor accessor,
+			List<StructuredQuery.Filter> filters, Integer limit) {
+
+		StructuredQuery.OrderBy[] orderBy = this.plan.getOrderBy(accessor);
+		boolean readEntities = false;
+		if (this.keyMapper != null) {
+			for (StructuredQuery.OrderBy order : orderBy) {
+				readEntities |= !KEY_PROPERTY_NAME.equals(order.getProperty());
+			}
+		}
+		List<StructuredQuery<?>> queries = new ArrayList<>(filters.size());
+		for (StructuredQuery.Filter filter : filters) {
+			if (readEntities) {
+				StructuredQuery.Builder<?> builder = this.plan
+						.bind(Query.newEntityQueryBuilder(), filter, accessor);
+				if (limit != null) {
+					builder.setLimit(limit);
+				}
+				queries.add(builder.build());
+			}
+			else {
+				queries.add(newQuery(accessor, filter, limit));
+			}
+		}
+		Iterator<Object> results = new MergingQueryIterator(run(queries),
+				orderBy.length > 0 ? new ResultComparator(orderBy) : null);
+		if (limit == null) {
+			return results;
+		}
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED),
+						false)
+				.limit(limit).iterator();
+	}
+
+	/**
+	 * Starts the queries, at most {@link #setSubQueryConcurrency(int) the sub-query
+	 * concurrency} at a time, and returns their results once the first batch of each has
+	 * arrived.
+	 */
+	private List<Iterator<?>> run(List<StructuredQuery<?>> queries) {
+		if (queries.size() == 1) {
+			return Collections.singletonList(this.datastore.run(queries.get(0)));
+		}
+		List<Iterator<?>> results = new ArrayList<>(queries.size());
+		Deque<FutureTask<Iterator<?>>> pending = new ArrayDeque<>();
+		for (StructuredQuery<?> query : queries) {
+			if (pending.size() >= this.subQueryConcurrency) {
+				results.add(runOrAwait(pending.poll()));
+			}
+			// Running a query fetches its first batch
+			FutureTask<Iterator<?>> task = new FutureTask<>(
+					() -> this.datastore.run(query));
+			pending.add(task);
+			try {
+				getAsyncExecutor().execute(task);
+			}
+			catch (RejectedExecutionException e) {
+				// The executor is saturated, so runOrAwait runs the task
+			}
+		}
+		while (!pending.isEmpty()) {
+			results.add(runOrAwait(pending.poll()));
+		}
+		return results;
+	}
+
+	/**
+	 * Runs the task on the calling thread unless the executor already started it, so a
+	 * query method running on the executor cannot starve it.
+	 */
+	private static <U> U runOrAwait(FutureTask<U> task) {
+		task.run();
+		try {
+			return task.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private <V> PrefetchingQueryIterator<V, Object> prefetch(StructuredQuery<V> query) {
+		return new PrefetchingQueryIterator<>(this.datastore, query, this.queryBatchSize,
+				getAsyncExecutor(), this::toResult);
+	}
+
+	private Executor getAsyncExecutor() {
+		return this.asyncExecutor != null ? this.asyncExecutor : Runnable::run;
+	}
+
+	private StructuredQuery<?> newQuery(ParameterAccessor accessor,
+			StructuredQuery.Filter filter, Integer limit) {
+
+		StructuredQuery.Builder<?> builder = newQueryBuilder(accessor, filter);
+		if (limit != null) {
+			builder.setLimit(limit);
+		}
+		return builder.build();
+	}
+
+	private StructuredQuery.Builder<?> newQueryBuilder(ParameterAccessor accessor,
+			StructuredQuery.Filter filter) {
+
+		if (this.keyMapper != null) {
+			return this.plan.bind(Query.newKeyQueryBuilder(), filter, accessor);
+		}
+		if (this.projection != null) {
+			return this.plan.bind(
+					Query.newProjectionEntityQueryBuilder().setProjection(
+							this.projection[0],
+							Arrays.copyOfRange(this.projection, 1, this.projection.length)),
+					filter, accessor);
+		}
+		return this.plan.bind(Query.newEntityQueryBuilder(), filter, accessor);
+	}
+
+	private Object toResult(Object result) {
+		if (this.keyMapper != null) {
+			return this.keyMapper.apply(ResultComparator.keyOf(result));
+		}
+		return this.unmarshaller.unmarshal((BaseEntity<?>) result, this.domainType);
+	}
+
+	private Object processResult(Object result) {
+		// Keys and ids are already the requested type
+		return this.keyMapper != null ? result
+				: this.resultProcessor.processResult(result);
+	}
+
+	private long count(List<StructuredQuery.Filter> filters) {
+		if (filters.size() == 1) {
+			KeyQuery query = Query.newKeyQueryBuilder().setKind(this.plan.getKind())
+					.setFilter(filters.get(0)).build();
+			return this.countStrategy.count(this.datastore, query);
+		}
+		// The queries may overlap, so count distinct keys
+		List<StructuredQuery<?>> queries = new ArrayList<>(filters.size());
+		for (StructuredQuery.Filter filter : filters) {
+			queries.add(Query.newKeyQueryBuilder().setKind(this.plan.getKind())
+					.setFilter(filter).build());
+		}
+		Iterator<Object> keys = new MergingQueryIterator(run(queries), null);
+		long count = 0;
+		while (keys.hasNext()) {
+			keys.next();
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public QueryMethod getQueryMethod() {
+		return this.queryMethod;
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.cloud.datastore.BaseEntity;
+import com.google.cloud.datastore.Blob;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.LatLng;
+import com.google.cloud.datastore.ListValue;
+import com.google.cloud.datastore.StructuredQuery;
+import com.google.cloud.datastore.Value;
+
+import org.springframework.data.gclouddatastore.repository.KeyComparator;
+import org.springframework.util.Assert;
+
+/**
+ * Orders query results, entities or keys, the way Datastore orders them for the given
+ * sort, so results of several queries can be merged on the client.
+ */
+final class ResultComparator implements Comparator<Object> {
+
+	private static final String KEY_PROPERTY_NAME = "__key__";
+
+	private final StructuredQuery.OrderBy[] orderBy;
+
+	ResultComparator(StructuredQuery.OrderBy[] orderBy) {
+		this.orderBy = orderBy;
+	}
+
+	static Key keyOf(Object result) {
+		return result instanceof Key ? (Key) result : (Key) ((BaseEntity<?>) result).getKey();
+	}
+
+	@Override
+	public int compare(Object result1, Object result2) {
+		for (StructuredQuery.OrderBy order : this.orderBy) {
+			boolean descending = order
+					.getDirection() == StructuredQuery.OrderBy.Direction.DESCENDING;
+			int comparison = compare(result1, result2, order.getProperty(), descending);
+			if (comparison != 0) {
+				return descending ? -comparison : comparison;
+			}
+		}
+		// Datastore breaks ties by key
+		return KeyComparator.INSTANCE.compare(keyOf(result1), keyOf(result2));
+	}
+
+	private static int compare(Object result1, Object result2, String property,
+			boolean descending) {
+
+		if (KEY_PROPERTY_NAME.equals(property)) {
+			return KeyComparator.INSTANCE.compare(keyOf(result1), keyOf(result2));
+		}
+		Assert.isInstanceOf(BaseEntity.class, result1,
+				"Keys-only results cannot be sorted by " + property + "!");
+		BaseEntity<?> entity1 = (BaseEntity<?>) result1;
+		BaseEntity<?> entity2 = (BaseEntity<?>) result2;
+		return compareValues(
+				entity1.contains(property) ? entity1.getValue(property) : null,
+				entity2.contains(property) ? entity2.getValue(property) : null,
+				descending);
+	}
+
+	static int compareValues(Value<?> value1, Value<?> value2) {
+		return compareValues(value1, value2, false);
+	}
+
+	/**
+	 * Compares two values, where a list sorts by its smallest element, or by its largest
+	 * one in a descending sort.
+	 */
+	@SuppressWarnings("unchecked")
+	static int compareValues(Value<?> value1, Value<?> value2, boolean descending) {
+		int rank1 = rank(value1, descending);
+		int rank2 = rank(value2, descending);
+		if (rank1 != rank2 || value1 == null || value2 == null) {
+			return Integer.compare(rank1, rank2);
+		}
+		switch (value1.getType()) {
+		case LONG:
+			return Long.compare((Long) value1.get(), (Long) value2.get());
+		case TIMESTAMP:
+			return ((Comparable<Object>) value1.get()).compareTo(value2.get());
+		case STRING:
+			// Datastore orders strings by their UTF-8 bytes, not their UTF-16 chars
+			return compareBytes(
+					((String) value1.get()).getBytes(StandardCharsets.UTF_8),
+					((String) value2.get()).getBytes(StandardCharsets.UTF_8));
+		case BOOLEAN:
+			return Boolean.compare((Boolean) value1.get(), (Boolean) value2.get());
+		case DOUBLE:
+			return Double.compare((Double) value1.get(), (Double) value2.get());
+		case BLOB:
+			return compareBytes(((Blob) value1.get()).toByteArray(),
+					((Blob) value2.get()).toByteArray());
+		case LAT_LNG:
+			LatLng latLng1 = (LatLng) value1.get();
+			LatLng latLng2 = (LatLng) value2.get();
+			int comparison = Double.compare(latLng1.getLatitude(), latLng2.getLatitude());
+			return comparison != 0 ? comparison
+					: Double.compare(latLng1.getLongitude(), latLng2.getLongitude());
+		case KEY:
+			return KeyComparator.INSTANCE.compare((Key) value1.get(),
+					(Key) value2.get());
+		case LIST:
+			return compareValues(extreme(((ListValue) value1).get(), descending),
+					extreme(((ListValue) value2).get(), descending));
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Datastore orders values of different types as null, integers, timestamps,
+	 * booleans, byte and unicode strings, doubles, geographical points and keys.
+	 */
+	private static int rank(Value<?> value, boolean descending) {
+		if (value == null) {
+			return 0;
+		}
+		switch (value.getType()) {
+		case NULL:
+			return 0;
+		case LONG:
+			return 1;
+		case TIMESTAMP:
+			return 2;
+		case BOOLEAN:
+			return 3;
+		case BLOB:
+			return 4;
+		case STRING:
+			return 5;
+		case DOUBLE:
+			return 6;
+		case LAT_LNG:
+			return 7;
+		case KEY:
+			return 8;
+		case LIST:
+			return rank(extreme(((ListValue) value).get(), descending), descending);
+		default:
+			return 9;
+		}
+	}
+
+	private static Value<?> extreme(List<? extends Value<?>> values,
+			boolean descending) {
+
+		Value<?> extreme = null;
+		for (Value<?> value : values) {
+			int comparison = extreme == null ? 0 : compareValues(value, extreme);
+			if (extreme == null || (descending ? comparison > 0 : comparison < 0)) {
+				extreme = value;
+			}
+		}
+		return extreme;
+	}
+
+	private static int compareBytes(byte[] bytes1, byte[] bytes2) {
+		int length = Math.min(bytes1.length, bytes2.length);
+		for (int i = 0; i < length; i++) {
+			int comparison = Integer.compare(bytes1[i] & 0xff, bytes2[i] & 0xff);
+			if (comparison != 0) {
+				return comparison;
+			}
+		}
+		return Integer.compare(bytes1.length, bytes2.length);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.cloud.datastore.Key;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchingInvalidationBusTests {
+
+	private static Key key(long id) {
+		return Key.newBuilder("project", "Person", id).build();
+	}
+
+	@Test
+	public void testCoalesce() {
+		// Setup
+		LoopbackInvalidationBus loopback = new LoopbackInvalidationBus();
+		List<Invalidation> received = new ArrayList<>();
+		loopback.subscribe(received::add);
+
+		try (BatchingInvalidationBus bus = new BatchingInvalidationBus(loopback, 10,
+				60000)) {
+			// Exercise
+			bus.publish(Invalidation.ofKeys("node", "Person", Arrays.asList(key(1))));
+			bus.publish(Invalidation.ofKeys("node", "Person", Arrays.asList(key(2))));
+			bus.publish(Invalidation.ofKeys("node", "Person", Arrays.asList(key(1))));
+			bus.publish(Invalidation.ofKind("node", "Address"));
+			bus.publish(Invalidation.ofKeys("node", "Address", Arrays.asList(
+					Key.newBuilder("project", "Address", 1).build())));
+			bus.flush();
+
+			// Verify
+			assertEquals(Arrays.asList(
+					Invalidation.ofKeys("node", "Person", Arrays.asList(key(1), key(2))),
+					Invalidation.ofKind("node", "Address")), received);
+		}
+	}
+
+	@Test
+	public void testMaxBatchSize() {
+		// Setup
+		LoopbackInvalidationBus loopback = new LoopbackInvalidationBus();
+		List<Invalidation> received = new ArrayList<>();
+		loopback.subscribe(received::add);
+
+		try (BatchingInvalidationBus bus = new BatchingInvalidationBus(loopback, 2,
+				60000)) {
+			// Exercise
+			bus.publish(Invalidation.ofKeys("node", "Person", Arrays.asList(key(1))));
+			bus.publish(Invalidation.ofKeys("node", "Person", Arrays.asList(key(2))));
+
+			// Verify
+			assertEquals(Arrays.asList(
+					Invalidation.ofKeys("node", "Person", Arrays.asList(key(1), key(2)))),
+					received);
+		}
+	}
+}
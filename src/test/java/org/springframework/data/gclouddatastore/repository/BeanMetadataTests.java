@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BeanMetadataTests {
+
+	@Data
+	@NoArgsConstructor
+	static class PackagePrivateBean {
+		long id;
+		String name;
+	}
+
+	public static class ReadOnlyBean {
+		public String getName() {
+			return "name";
+		}
+	}
+
+	@Test
+	public void testPublicBean() throws Exception {
+		// Setup
+		BeanMetadata metadata = BeanMetadata.of(Person.class);
+		Person person = new Person();
+
+		// Exercise
+		metadata.getProperty("id").setValue(person, 123L);
+		metadata.getProperty("birthYear").setValue(person, 1970);
+		metadata.getProperty("citizen").setValue(person, true);
+		metadata.getProperty("firstName").setValue(person, "Jane");
+
+		// Verify
+		assertEquals(new Person(123L, null, "Jane", null, 1970, true), person);
+		assertEquals(123L, metadata.getProperty("id").getValue(person));
+		assertEquals("Jane", metadata.getProperty("firstName").getValue(person));
+		for (BeanMetadata.Property property : metadata.getReadableProperties()) {
+			assertFalse(property.getName(), property.isReflective());
+		}
+	}
+
+	@Test
+	public void testPackagePrivateBean() throws Exception {
+		// Setup
+		BeanMetadata metadata = BeanMetadata.of(PackagePrivateBean.class);
+		PackagePrivateBean bean = new PackagePrivateBean();
+
+		// Exercise
+		metadata.getProperty("id").setValue(bean, 123L);
+		metadata.getProperty("name").setValue(bean, "name");
+
+		// Verify
+		assertEquals(123L, bean.getId());
+		assertEquals("name", metadata.getProperty("name").getValue(bean));
+		assertTrue(metadata.getProperty("name").isReflective());
+	}
+
+	@Test
+	public void testReadOnlyProperty() throws Exception {
+		// Exercise
+		BeanMetadata metadata = BeanMetadata.of(ReadOnlyBean.class);
+
+		// Verify
+		assertFalse(metadata.getProperty("name").isWritable());
+		assertEquals(1, metadata.getReadableProperties().size());
+		assertNull(metadata.getProperty("class"));
+	}
+}
@@ -16,7 +16,11 @@
 
 package org.springframework.data.gclouddatastore.repository;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import com.google.cloud.datastore.PathElement;
 import org.junit.Test;
@@ -87,4 +91,54 @@ public class ContextTests {
 		// Verify
 		assertThat(Context.getAncestors(), empty());
 	}
+
+	@Test
+	public void testPropagate() throws Exception {
+		// Setup
+		Supplier<List<PathElement>> supplier;
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			supplier = Context.propagate(() -> new ArrayList<>(Context.getAncestors()));
+		}
+
+		// Exercise
+		List<PathElement> ancestors = CompletableFuture.supplyAsync(supplier).get();
+
+		// Verify
+		assertThat(ancestors, contains(PathElement.of("Kind", 1)));
+		assertThat(Context.getAncestors(), empty());
+	}
+
+	@Test
+	public void testPropagateOnCallingThread() {
+		// Setup
+		Supplier<List<PathElement>> supplier;
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			supplier = Context.propagate(() -> new ArrayList<>(Context.getAncestors()));
+		}
+
+		try (Context ctx = Context.with(PathElement.of("Other", 2))) {
+			// Exercise
+			List<PathElement> ancestors = supplier.get();
+
+			// Verify
+			assertThat(ancestors, contains(PathElement.of("Kind", 1)));
+			assertThat(Context.getAncestors(), contains(PathElement.of("Other", 2)));
+		}
+	}
+
+	@Test
+	public void testPropagateToSameContext() {
+		// Setup
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			Supplier<List<PathElement>> supplier = Context
+					.propagate(() -> new ArrayList<>(Context.getAncestors()));
+
+			// Exercise
+			List<PathElement> ancestors = supplier.get();
+
+			// Verify
+			assertThat(ancestors, contains(PathElement.of("Kind", 1)));
+			assertThat(Context.getAncestors(), contains(PathElement.of("Kind", 1)));
+		}
+	}
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.Arrays;
+
+import com.google.cloud.datastore.Cursor;
+import org.junit.Test;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CursorSliceTests {
+
+	private final Cursor cursor = Cursor.copyFrom("cursor".getBytes());
+
+	@Test
+	public void testNextPageableCarriesCursor() throws Exception {
+		// Setup
+		CursorSlice<String> slice = new CursorSlice<>(Arrays.asList("a", "b"),
+				new PageRequest(0, 2), true, this.cursor);
+
+		// Exercise
+		Pageable next = slice.nextPageable();
+
+		// Verify
+		assertEquals(new CursorPageable(1, 2, null, this.cursor), next);
+	}
+
+	@Test
+	public void testNoNextPageableOnLastSlice() throws Exception {
+		// Setup
+		CursorSlice<String> slice = new CursorSlice<>(Arrays.asList("a"),
+				new PageRequest(0, 2), false, this.cursor);
+
+		// Exercise, Verify
+		assertNull(slice.nextPageable());
+	}
+
+	@Test
+	public void testMapKeepsCursor() throws Exception {
+		// Setup
+		CursorPage<String> page = new CursorPage<>(Arrays.asList("a", "b"),
+				new PageRequest(0, 2), 5, this.cursor);
+
+		// Exercise
+		CursorPage<Integer> mapped = page.map(String::length);
+
+		// Verify
+		assertEquals(this.cursor, mapped.getCursor());
+		assertEquals(5L, mapped.getTotalElements());
+		assertEquals(Arrays.asList(1, 1), mapped.getContent());
+	}
+
+	@Test
+	public void testTokenCarriesPageNumber() throws Exception {
+		// Setup, with a cursor whose URL safe form contains the separator
+		Cursor cursor = Cursor.copyFrom(new byte[] { (byte) 0xfb, (byte) 0xff });
+		CursorPageable pageable = new CursorPageable(3, 2, null, cursor);
+
+		// Exercise
+		CursorPageable rebuilt = CursorPageable.fromToken(pageable.toToken(), 2);
+
+		// Verify
+		assertEquals(pageable, rebuilt);
+		assertEquals(6, rebuilt.getOffset());
+	}
+
+	@Test
+	public void testTokenWithoutCursor() throws Exception {
+		// Exercise
+		CursorPageable rebuilt = CursorPageable
+				.fromToken(new CursorPageable(0, 2, null, null).toToken(), 2);
+
+		// Verify
+		assertEquals(0, rebuilt.getPageNumber());
+		assertNull(rebuilt.getCursor());
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EntityCacheTests {
+
+	private static Entity person(long id) {
+		return Entity.newBuilder(Key.newBuilder("project", "Person", id).build())
+				.set("lastName", "Kuti").build();
+	}
+
+	@Test
+	public void testExpiry() {
+		// Setup
+		AtomicLong now = new AtomicLong();
+		EntityCache cache = new EntityCache(10, 1, 0, TimeUnit.SECONDS, now::get);
+		Entity entity = person(1);
+		cache.put(entity);
+
+		// Exercise & Verify
+		assertEquals(entity, cache.get(entity.getKey()));
+		now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertNull(cache.get(entity.getKey()));
+	}
+
+	@Test
+	public void testMiss() {
+		// Setup
+		AtomicLong now = new AtomicLong();
+		EntityCache cache = new EntityCache(10, 60, 1, TimeUnit.SECONDS, now::get);
+		Entity entity = person(1);
+
+		// Exercise
+		cache.putMissIfUnmodified(entity.getKey(), cache.stamp());
+
+		// Verify
+		assertTrue(cache.isMissing(entity.getKey()));
+		assertNull(cache.get(entity.getKey()));
+		now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertFalse(cache.isMissing(entity.getKey()));
+		cache.putMissIfUnmodified(entity.getKey(), cache.stamp());
+		cache.put(entity);
+		assertFalse(cache.isMissing(entity.getKey()));
+		assertEquals(entity, cache.get(entity.getKey()));
+	}
+
+	@Test
+	public void testMissesNotCached() {
+		// Setup
+		EntityCache cache = new EntityCache();
+		Key key = person(1).getKey();
+
+		// Exercise
+		cache.putMissIfUnmodified(key, cache.stamp());
+
+		// Verify
+		assertFalse(cache.isMissing(key));
+	}
+
+	@Test
+	public void testMaxSize() {
+		// Setup
+		EntityCache cache = new EntityCache(10, 1, TimeUnit.MINUTES);
+
+		// Exercise
+		for (long id = 1; id <= 25; id++) {
+			cache.put(person(id));
+		}
+
+		// Verify
+		assertTrue(cache.size() <= 10);
+	}
+
+	@Test
+	public void testPutIfUnmodified() {
+		// Setup
+		EntityCache cache = new EntityCache();
+		Entity entity1 = person(1);
+		Entity entity2 = person(2);
+
+		// Exercise
+		long stamp = cache.stamp();
+		cache.putIfUnmodified(entity1, stamp);
+		stamp = cache.stamp();
+		cache.invalidate(entity1.getKey());
+		cache.putIfUnmodified(entity2, stamp);
+
+		// Verify
+		assertNull(cache.get(entity1.getKey()));
+		assertNull(cache.get(entity2.getKey()));
+		cache.putIfUnmodified(entity2, cache.stamp());
+		assertEquals(entity2, cache.get(entity2.getKey()));
+	}
+
+	@Test
+	public void testPutIfUnmodifiedRacingWithWrite() {
+		// Setup
+		Runnable[] race = new Runnable[1];
+		EntityCache cache = new EntityCache(10, 60, 60, TimeUnit.SECONDS, () -> {
+			// Runs between the stamp check and the store
+			Runnable write = race[0];
+			race[0] = null;
+			if (write != null) {
+				write.run();
+			}
+			return 0;
+		});
+		Entity stale = person(1);
+		Entity fresh = Entity.newBuilder(stale).set("lastName", "Doe").build();
+		Key missing = person(2).getKey();
+
+		// Exercise
+		race[0] = () -> cache.put(fresh);
+		cache.putIfUnmodified(stale, cache.stamp());
+		race[0] = () -> cache.invalidate(missing);
+		cache.putMissIfUnmodified(missing, cache.stamp());
+
+		// Verify
+		assertNotEquals(stale, cache.get(stale.getKey()));
+		assertFalse(cache.isMissing(missing));
+	}
+
+	@Test
+	public void testInvalidationBus() {
+		// Setup
+		Map<String, List<Consumer<String>>> channels = new HashMap<>();
+		PubSubInvalidationBus bus = new PubSubInvalidationBus(
+				new PubSubInvalidationBus.Transport() {
+					@Override
+					public void publish(String channel, String message) {
+						channels.getOrDefault(channel, Collections.emptyList())
+								.forEach(listener -> listener.accept(message));
+					}
+
+					@Override
+					public void subscribe(String channel, Consumer<String> listener) {
+						channels.computeIfAbsent(channel, c -> new ArrayList<>())
+								.add(listener);
+					}
+				});
+		EntityCache cache1 = new EntityCache();
+		EntityCache cache2 = new EntityCache();
+		cache1.subscribe(bus, "node1", "Person");
+		cache2.subscribe(bus, "node2", "Person");
+		Entity entity = person(1);
+		cache1.putIfUnmodified(entity, cache1.stamp());
+		cache2.putIfUnmodified(entity, cache2.stamp());
+
+		// Exercise
+		cache1.put(entity);
+		bus.publish(Invalidation.ofKeys("node1", "Person",
+				Collections.singletonList(entity.getKey())));
+
+		// Verify
+		assertEquals(entity, cache1.get(entity.getKey()));
+		assertNull(cache2.get(entity.getKey()));
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import com.google.cloud.datastore.Blob;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.ListValue;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class EntitySizeEstimatorTests {
+
+	private final Key key = Key.newBuilder("project", "Person", 1L).build();
+
+	@Test
+	public void testEstimateGrowsWithContent() throws Exception {
+		// Setup
+		Entity small = Entity.newBuilder(this.key).set("name", "a").build();
+		Entity large = Entity.newBuilder(this.key)
+				.set("name", new String(new char[1000]).replace('\0', 'a')).build();
+
+		// Exercise
+		long smallSize = EntitySizeEstimator.estimate(small);
+		long largeSize = EntitySizeEstimator.estimate(large);
+
+		// Verify
+		assertTrue(largeSize - smallSize >= 999);
+	}
+
+	@Test
+	public void testEstimateNestedValues() throws Exception {
+		// Setup
+		FullEntity<?> nested = FullEntity.newBuilder()
+				.set("data", Blob.copyFrom(new byte[4096])).build();
+		Entity entity = Entity.newBuilder(this.key).set("nested", nested)
+				.set("list", ListValue.of("あい", "b")).build();
+
+		// Exercise
+		long size = EntitySizeEstimator.estimate(entity);
+
+		// Verify
+		assertTrue(size >= 4096 + 6 + 1);
+		assertTrue(size < 4096 + 200);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.ComponentScan.Filter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = GcloudDatastoreRepositoryConfigurationTests.class)
+@Configuration
+@EnableGcloudDatastoreRepositories(batchSize = 7, adaptiveBatchSize = true, includeFilters = @Filter(type = FilterType.ASSIGNABLE_TYPE, classes = {
+		PersonRepository.class, EventRepository.class }))
+public class GcloudDatastoreRepositoryConfigurationTests {
+
+	@Autowired
+	PersonRepository personRepo;
+
+	@Autowired
+	EventRepository eventRepo;
+
+	private static SimpleGcloudDatastoreRepository<?, ?> getTarget(Object repository)
+			throws Exception {
+
+		return (SimpleGcloudDatastoreRepository<?, ?>) ((Advised) repository)
+				.getTargetSource().getTarget();
+	}
+
+	@Test
+	public void testBatchSize() throws Exception {
+		// Exercise
+		SimpleGcloudDatastoreRepository<?, ?> repository = getTarget(this.personRepo);
+
+		// Verify
+		assertEquals(7, repository.batchSize);
+		assertTrue(repository.adaptiveBatchSize);
+	}
+
+	@Test
+	public void testBatchSizeOfDomainType() throws Exception {
+		// Exercise
+		SimpleGcloudDatastoreRepository<?, ?> repository = getTarget(this.eventRepo);
+
+		// Verify
+		assertEquals(20, repository.batchSize);
+		assertFalse(repository.adaptiveBatchSize);
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.Key;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class GcloudDatastoreRepositoryFactoryTests {
+
+	private final Map<Key, Entity> stored = new HashMap<>();
+
+	private final AtomicInteger gets = new AtomicInteger();
+
+	private final List<Invalidation> published = new ArrayList<>();
+
+	private final LoopbackInvalidationBus invalidationBus = new LoopbackInvalidationBus();
+
+	private StubDatastore datastore;
+
+	private GcloudDatastoreRepositoryFactory factory;
+
+	@Before
+	public void setUp() {
+		this.datastore = new StubDatastore().on("put", args -> {
+			List<Entity> entities = new ArrayList<>();
+			for (FullEntity<?> entity : (FullEntity<?>[]) args[0]) {
+				entities.add(Entity.newBuilder((Key) entity.getKey(), entity).build());
+			}
+			entities.forEach(entity -> this.stored.put(entity.getKey(), entity));
+			return entities;
+		}).on("delete", args -> {
+			for (Key key : (Key[]) args[0]) {
+				this.stored.remove(key);
+			}
+			return null;
+		}).on("get", args -> {
+			this.gets.incrementAndGet();
+			return this.stored.get(args[0]);
+		});
+		this.invalidationBus.subscribe(this.published::add);
+		this.factory = new GcloudDatastoreRepositoryFactory(
+				this.datastore.getOptions());
+		this.factory.setInvalidationBus(this.invalidationBus);
+	}
+
+	private static Key key(long id) {
+		return Key.newBuilder(StubDatastore.PROJECT_ID, "CachedPerson", id).build();
+	}
+
+	@Test
+	public void testWriteThroughWithInvalidationBus() {
+		// Setup
+		CachedPersonRepository repository = this.factory
+				.getRepository(CachedPersonRepository.class);
+
+		// Exercise
+		repository.save(new CachedPerson(1L, "Kuti"));
+		CachedPerson found = repository.findOne(1L);
+
+		// Verify
+		assertEquals("Kuti", found.getLastName());
+		// The entity cache ignored the invalidation of its own node
+		assertEquals(0, this.gets.get());
+		// One message for the kind, not one per cache
+		assertEquals(Collections.singletonList(Invalidation
+				.ofKeys(GcloudDatastoreRepositoryFactory.INVALIDATION_ORIGIN,
+						"CachedPerson", Collections.singletonList(key(1)))),
+				this.published);
+	}
+
+	@Test
+	public void testInvalidationFromOtherNode() {
+		// Setup
+		CachedPersonRepository repository = this.factory
+				.getRepository(CachedPersonRepository.class);
+		repository.save(new CachedPerson(1L, "Kuti"));
+
+		// Exercise
+		this.invalidationBus.publish(Invalidation.ofKeys("other", "CachedPerson",
+				Collections.singletonList(key(1))));
+		repository.findOne(1L);
+
+		// Verify
+		assertEquals(1, this.gets.get());
+	}
+
+	@Test
+	public void testWritesPublishOncePerBatch() {
+		// Setup
+		this.factory.setBatchSize(50);
+		CachedPersonRepository repository = this.factory
+				.getRepository(CachedPersonRepository.class);
+		List<CachedPerson> persons = new ArrayList<>();
+		for (long id = 1; id <= 120; id++) {
+			persons.add(new CachedPerson(id, "Kuti"));
+		}
+
+		// Exercise
+		repository.save(persons);
+		repository.delete(persons);
+
+		// Verify
+		List<Integer> sizes = new ArrayList<>();
+		for (Invalidation invalidation : this.published) {
+			sizes.add(invalidation.getKeys().size());
+		}
+		assertEquals(Arrays.asList(50, 50, 20, 50, 50, 20), sizes);
+	}
+
+	@Test
+	public void testSharedAcrossFactories() {
+		// Exercise
+		GcloudDatastoreRepositoryFactory sameOptions = new GcloudDatastoreRepositoryFactory(
+				this.datastore.getOptions());
+		GcloudDatastoreRepositoryFactory otherOptions = new GcloudDatastoreRepositoryFactory(
+				new StubDatastore().getOptions());
+
+		// Verify
+		assertSame(this.factory.datastoreOptions, sameOptions.datastoreOptions);
+		assertSame(this.factory.keyFactoryCache, sameOptions.keyFactoryCache);
+		assertNotSame(this.factory.keyFactoryCache, otherOptions.keyFactoryCache);
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.cloud.datastore.DatastoreOptions;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.Transaction;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GcloudDatastoreTransactionManagerTests {
+
+	private final Map<Key, Entity> stored = new HashMap<>();
+
+	private final List<Object> buffered = new ArrayList<>();
+
+	private int commits;
+
+	private int rollbacks;
+
+	private SimpleGcloudDatastoreRepository<Person, Long> repository;
+
+	private GcloudDatastoreTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	@Before
+	public void setUp() {
+		DatastoreOptions datastoreOptions = new StubDatastore()
+				.on("newTransaction", args -> newTransaction()).getOptions();
+
+		this.repository = new SimpleGcloudDatastoreRepository<>(
+				new GcloudDatastoreEntityInformation<>(Person.class), datastoreOptions);
+		this.repository.setBatchSize(10);
+		this.transactionManager = new GcloudDatastoreTransactionManager(datastoreOptions);
+		this.transactionTemplate = new TransactionTemplate(this.transactionManager);
+	}
+
+	private Transaction newTransaction() {
+		boolean[] active = { true };
+		return (Transaction) Proxy.newProxyInstance(Transaction.class.getClassLoader(),
+				new Class<?>[] { Transaction.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "get":
+						return this.stored.get(args[0]);
+					case "put":
+						List<Entity> entities = new ArrayList<>();
+						for (FullEntity<?> entity : (FullEntity<?>[]) args[0]) {
+							entities.add(Entity.newBuilder((Key) entity.getKey(), entity)
+									.build());
+						}
+						this.buffered.addAll(entities);
+						return entities;
+					case "delete":
+						this.buffered.addAll(Arrays.asList((Key[]) args[0]));
+						return null;
+					case "commit":
+						this.commits++;
+						for (Object write : this.buffered) {
+							if (write instanceof Entity) {
+								this.stored.put(((Entity) write).getKey(), (Entity) write);
+							}
+							else {
+								this.stored.remove(write);
+							}
+						}
+						this.buffered.clear();
+						active[0] = false;
+						return null;
+					case "rollback":
+						this.rollbacks++;
+						this.buffered.clear();
+						active[0] = false;
+						return null;
+					case "isActive":
+						return active[0];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Test
+	public void testCommitOnce() {
+		// Setup
+		List<Person> persons = new ArrayList<>();
+		for (long id = 1; id <= 30; id++) {
+			persons.add(new Person(id, null, "Ada", "Lovelace", 1815, true));
+		}
+
+		// Exercise
+		this.transactionTemplate.execute(status -> {
+			this.repository.save(persons);
+			assertEquals(0, this.commits);
+			return null;
+		});
+
+		// Verify
+		assertEquals(1, this.commits);
+		assertEquals(30, this.stored.size());
+		assertTrue(this.buffered.isEmpty());
+	}
+
+	@Test
+	public void testRollback() {
+		// Setup
+		Person person = new Person(1L, null, "Ada", "Lovelace", 1815, true);
+
+		// Exercise
+		this.transactionTemplate.execute(status -> {
+			this.repository.save(person);
+			status.setRollbackOnly();
+			return null;
+		});
+
+		// Verify
+		assertEquals(0, this.commits);
+		assertEquals(1, this.rollbacks);
+		assertTrue(this.stored.isEmpty());
+	}
+
+	@Test
+	public void testReadAndDelete() {
+		// Setup
+		this.transactionTemplate.execute(status -> this.repository
+				.save(new Person(1L, null, "Ada", "Lovelace", 1815, true)));
+
+		// Exercise
+		Person found = this.transactionTemplate.execute(status -> {
+			Person person = this.repository.findOne(1L);
+			this.repository.delete(1L);
+			return person;
+		});
+
+		// Verify
+		assertNotNull(found);
+		assertEquals("Lovelace", found.getLastName());
+		assertEquals(2, this.commits);
+		assertTrue(this.stored.isEmpty());
+		assertNull(this.transactionTemplate
+				.execute(status -> this.repository.findOne(1L)));
+	}
+
+	@Test
+	public void testMutationLimit() {
+		// Setup
+		List<Person> persons = new ArrayList<>();
+		int maxMutations = SimpleGcloudDatastoreRepository.MAX_MUTATIONS_PER_COMMIT;
+		for (long id = 1; id <= maxMutations + 1; id++) {
+			persons.add(new Person(id, null, "Ada", "Lovelace", 1815, true));
+		}
+
+		// Exercise
+		try {
+			this.transactionTemplate.execute(status -> this.repository.save(persons));
+			fail();
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+
+		// Verify
+		assertEquals(0, this.commits);
+		assertEquals(1, this.rollbacks);
+		assertTrue(this.stored.isEmpty());
+	}
+
+	@Test
+	public void testCacheInvalidatedAfterCommit() {
+		// Setup
+		EntityCache entityCache = new EntityCache();
+		this.repository.setEntityCache(entityCache);
+		Key key = Key.newBuilder("project", "Person", 1L).build();
+		Entity cached = Entity.newBuilder(key).set("lastName", "Byron").build();
+		entityCache.put(cached);
+		Person person = new Person(1L, null, "Ada", "Lovelace", 1815, true);
+
+		// Exercise
+		this.transactionTemplate.execute(status -> {
+			this.repository.save(person);
+			status.setRollbackOnly();
+			return null;
+		});
+		Entity afterRollback = entityCache.get(key);
+		this.transactionTemplate.execute(status -> {
+			this.repository.save(person);
+			assertEquals(cached, entityCache.get(key));
+			return null;
+		});
+
+		// Verify
+		assertEquals(cached, afterRollback);
+		assertNull(entityCache.get(key));
+	}
+
+	@Test
+	public void testCacheInvalidatedAfterCommitWithoutSynchronization() {
+		// Setup
+		this.transactionManager.setTransactionSynchronization(
+				GcloudDatastoreTransactionManager.SYNCHRONIZATION_NEVER);
+		EntityCache entityCache = new EntityCache();
+		this.repository.setEntityCache(entityCache);
+		Key key = Key.newBuilder("project", "Person", 1L).build();
+		Entity cached = Entity.newBuilder(key).set("lastName", "Byron").build();
+		entityCache.put(cached);
+
+		// Exercise
+		this.transactionTemplate.execute(status -> {
+			this.repository.delete(1L);
+			assertEquals(cached, entityCache.get(key));
+			return null;
+		});
+
+		// Verify
+		assertEquals(1, this.commits);
+		assertNull(entityCache.get(key));
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.cloud.datastore.StructuredQuery;
+import org.junit.Test;
+
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.gclouddatastore.repository.query.CompositeIndex;
+
+import static org.junit.Assert.assertEquals;
+
+public class IndexAdvisorTests {
+
+	private static final CompositeIndex LAST_NAME_FIRST_NAME = new CompositeIndex(
+			"Person", true, Arrays.asList(StructuredQuery.OrderBy.asc("lastName"),
+					StructuredQuery.OrderBy.asc("firstName")));
+
+	private static final CompositeIndex LAST_NAME_BIRTH_YEAR = new CompositeIndex(
+			"Person", false, Arrays.asList(StructuredQuery.OrderBy.asc("lastName"),
+					StructuredQuery.OrderBy.desc("birthYear")));
+
+	@Test
+	public void testReadIndexes() throws Exception {
+		// Exercise
+		List<CompositeIndex> indexes = IndexAdvisor.readIndexes(new StringReader(
+				"indexes:\n\n- kind: Person\n  ancestor: yes\n  properties:\n"
+						+ "  - name: lastName\n  - name: firstName\n\n"
+						+ "# comment\n- kind: Person\n  properties:\n"
+						+ "  - name: lastName\n  - name: birthYear\n    direction: desc\n"));
+
+		// Verify
+		assertEquals(Arrays.asList(LAST_NAME_FIRST_NAME, LAST_NAME_BIRTH_YEAR), indexes);
+	}
+
+	@Test
+	public void testToYaml() {
+		// Setup
+		IndexAdvisor advisor = new IndexAdvisor();
+		advisor.register("PersonRepository.findByLastNameOrderByBirthYearDesc",
+				Collections.singletonList(LAST_NAME_BIRTH_YEAR));
+
+		// Exercise
+		String yaml = advisor.toYaml();
+
+		// Verify
+		assertEquals("indexes:\n\n# PersonRepository.findByLastNameOrderByBirthYearDesc\n"
+				+ "- kind: Person\n  properties:\n  - name: lastName\n"
+				+ "  - name: birthYear\n    direction: desc\n", yaml);
+	}
+
+	@Test
+	public void testDiff() throws Exception {
+		// Setup
+		IndexAdvisor advisor = new IndexAdvisor();
+		advisor.register("PersonRepository.findByLastNameOrderByBirthYearDesc",
+				Collections.singletonList(LAST_NAME_BIRTH_YEAR));
+
+		// Exercise
+		IndexAdvisor.Diff diff = advisor
+				.diff(new StringReader("indexes:\n" + LAST_NAME_FIRST_NAME.toYaml()));
+
+		// Verify
+		assertEquals(Collections.singletonList(LAST_NAME_BIRTH_YEAR), diff.getMissing());
+		assertEquals(Collections.singletonList(LAST_NAME_FIRST_NAME), diff.getUnused());
+	}
+
+	@Test
+	public void testReportAgainstIndexYaml() throws Exception {
+		// Setup
+		IndexAdvisor advisor = new IndexAdvisor();
+		advisor.register("PersonRepository.findByLastNameOrderByBirthYearDesc",
+				Collections.singletonList(LAST_NAME_BIRTH_YEAR));
+		advisor.setIndexYaml(new ByteArrayResource(
+				("indexes:\n" + LAST_NAME_BIRTH_YEAR.toYaml()).getBytes("UTF-8")));
+
+		// Exercise
+		boolean reported = advisor.report();
+
+		// Verify
+		assertEquals(false, reported);
+	}
+
+	@Test
+	public void testReportOnContextRefresh() throws Exception {
+		// Setup
+		StaticApplicationContext context = new StaticApplicationContext();
+		context.registerSingleton("indexAdvisor", CountingIndexAdvisor.class);
+		StaticApplicationContext child = new StaticApplicationContext(context);
+
+		// Exercise
+		context.refresh();
+		child.refresh();
+
+		// Verify
+		assertEquals(1, context.getBean(CountingIndexAdvisor.class).reports);
+		child.close();
+		context.close();
+	}
+
+	static class CountingIndexAdvisor extends IndexAdvisor {
+
+		int reports;
+
+		@Override
+		boolean report() throws IOException {
+			this.reports++;
+			return super.report();
+		}
+	}
+}
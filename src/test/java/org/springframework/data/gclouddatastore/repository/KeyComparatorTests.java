@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.PathElement;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+
+public class KeyComparatorTests {
+
+	@Test
+	public void testCompare() throws Exception {
+		// Setup
+		Key id2 = Key.newBuilder("project", "Person", 2L).build();
+		Key id10 = Key.newBuilder("project", "Person", 10L).build();
+		Key nameA = Key.newBuilder("project", "Person", "a").build();
+		Key nameB = Key.newBuilder("project", "Person", "b").build();
+		Key child = Key.newBuilder("project", "Person", 1L)
+				.addAncestor(PathElement.of("Person", 2L)).build();
+		Key otherKind = Key.newBuilder("project", "Animal", 99L).build();
+		List<Key> keys = Arrays.asList(nameB, child, id10, nameA, otherKind, id2);
+
+		// Exercise
+		keys.sort(KeyComparator.INSTANCE);
+
+		// Verify
+		assertThat(keys, contains(otherKind, id2, child, id10, nameA, nameB));
+	}
+
+	@Test
+	public void testCompareNamesByUtf8() throws Exception {
+		// Setup
+		Key halfwidth = Key.newBuilder("project", "Person", "\uFF61").build();
+		Key emoji = Key.newBuilder("project", "Person", "\uD83D\uDE00").build();
+		List<Key> keys = Arrays.asList(emoji, halfwidth);
+
+		// Exercise
+		keys.sort(KeyComparator.INSTANCE);
+
+		// Verify
+		assertThat(keys, contains(halfwidth, emoji));
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreOptions;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.PathElement;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class KeyFactoryCacheTests {
+
+	private final Datastore datastore = DatastoreOptions.newBuilder()
+			.setProjectId("project").build().getService();
+
+	@Test
+	public void testNewKey() throws Exception {
+		// Setup
+		KeyFactoryCache cache = new KeyFactoryCache(this.datastore);
+
+		// Exercise, Verify
+		assertEquals(
+				Key.newBuilder("project", "Person", 123L)
+						.addAncestor(PathElement.of("Kind", 1)).build(),
+				cache.newKey("Person", Arrays.asList(PathElement.of("Kind", 1)), 123L));
+		assertEquals(Key.newBuilder("project", "Person", "abc").build(),
+				cache.newKey("Person", Collections.emptyList(), "abc"));
+	}
+
+	@Test
+	public void testKeyFactoryIsCached() throws Exception {
+		// Setup
+		KeyFactoryCache cache = new KeyFactoryCache(this.datastore);
+
+		// Exercise, Verify
+		assertSame(
+				cache.getKeyFactory("Person", Arrays.asList(PathElement.of("Kind", 1))),
+				cache.getKeyFactory("Person", Arrays.asList(PathElement.of("Kind", 1))));
+	}
+
+	@Test
+	public void testGetAncestorKey() throws Exception {
+		// Setup
+		KeyFactoryCache cache = new KeyFactoryCache(this.datastore);
+
+		// Exercise, Verify
+		assertNull(cache.getAncestorKey(Collections.emptyList()));
+		assertEquals(
+				Key.newBuilder("project", "Child", "b")
+						.addAncestor(PathElement.of("Parent", 1)).build(),
+				cache.getAncestorKey(Arrays.asList(PathElement.of("Parent", 1),
+						PathElement.of("Child", "b"))));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.lang.management.ManagementFactory;
+
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.IncompleteKey;
+import com.google.cloud.datastore.Key;
+
+/**
+ * Micro benchmark for the marshalling hot path. Not run as part of the test suite;
+ * launch {@link #main(String[])} from the test classpath to print the time and the
+ * allocation per entity.
+ */
+public class MarshallerBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 200_000;
+
+	private static final int ITERATIONS = 1_000_000;
+
+	public static void main(String[] args) {
+		Marshaller marshaller = new Marshaller();
+		Unmarshaller unmarshaller = new Unmarshaller();
+		Key key = Key.newBuilder("benchmark", "Person", 1L).build();
+		Person person = new Person(1L, "jane@example.com", "Jane", "Doe", 1970, true);
+		FullEntity<? extends IncompleteKey> entity = marshaller.toEntity(person, key);
+
+		run("toEntity", () -> marshaller.toEntity(person, key));
+		run("unmarshal", () -> unmarshaller.unmarshal(entity, Person.class));
+	}
+
+	private static void run(String name, Runnable operation) {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			operation.run();
+		}
+
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			operation.run();
+		}
+		long elapsed = System.nanoTime() - start;
+		long allocated = threadMXBean.getThreadAllocatedBytes(threadId)
+				- allocatedBefore;
+
+		System.out.printf("%-10s %8.1f ns/op %8d B/op%n", name,
+				(double) elapsed / ITERATIONS, allocated / ITERATIONS);
+	}
+}
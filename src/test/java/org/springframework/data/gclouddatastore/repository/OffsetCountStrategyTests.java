@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyQuery;
+import com.google.cloud.datastore.Query;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class OffsetCountStrategyTests {
+
+	private final List<KeyQuery> queries = new ArrayList<>();
+
+	private static Cursor cursor(int position) {
+		return Cursor.copyFrom(new byte[] { (byte) position });
+	}
+
+	private static int position(Cursor cursor) {
+		for (int position = 0; position < 128; position++) {
+			if (cursor(position).equals(cursor)) {
+				return position;
+			}
+		}
+		throw new IllegalArgumentException(cursor.toUrlSafe());
+	}
+
+	/**
+	 * Returns a Datastore holding the given number of keys, whose cursors encode positions.
+	 */
+	private Datastore datastore(int size) {
+		return new StubDatastore().onRun(run -> {
+			KeyQuery query = (KeyQuery) run;
+			this.queries.add(query);
+			int start = (query.getStartCursor() != null
+					? position(query.getStartCursor()) : 0) + query.getOffset();
+			int end = Math.min(size, start + query.getLimit());
+			List<Key> keys = new ArrayList<>();
+			for (int i = start; i < end; i++) {
+				keys.add(Key.newBuilder("project", "Person", i + 1).build());
+			}
+			return StubDatastore.results(keys.iterator(), count -> cursor(start + count));
+		}).getDatastore();
+	}
+
+	private List<Integer> startPositions() {
+		List<Integer> positions = new ArrayList<>();
+		for (KeyQuery query : this.queries) {
+			positions.add(query.getStartCursor() != null
+					? position(query.getStartCursor()) : null);
+		}
+		return positions;
+	}
+
+	@Test
+	public void testCountSeveralPages() {
+		// Setup
+		KeyQuery query = Query.newKeyQueryBuilder().setKind("Person").build();
+
+		// Exercise
+		long count = new OffsetCountStrategy(5).count(datastore(23), query);
+
+		// Verify
+		assertEquals(23, count);
+		// Four full pages, an empty one, then the tail after the last cursor
+		assertEquals(Arrays.asList(null, 5, 10, 15, 20, 20), startPositions());
+		for (KeyQuery pageQuery : this.queries.subList(0, 5)) {
+			assertEquals(4, pageQuery.getOffset());
+			assertEquals(Integer.valueOf(1), pageQuery.getLimit());
+		}
+		assertEquals(0, this.queries.get(5).getOffset());
+		assertEquals(Integer.valueOf(4), this.queries.get(5).getLimit());
+	}
+
+	@Test
+	public void testCountFullPages() {
+		// Exercise
+		long count = new OffsetCountStrategy(5).count(datastore(10),
+				Query.newKeyQueryBuilder().setKind("Person").build());
+
+		// Verify
+		assertEquals(10, count);
+		assertEquals(Arrays.asList(null, 5, 10, 10), startPositions());
+	}
+
+	@Test
+	public void testCountFromStartCursor() {
+		// Exercise
+		long count = new OffsetCountStrategy(5).count(datastore(23),
+				Query.newKeyQueryBuilder().setKind("Person").setStartCursor(cursor(12))
+						.build());
+
+		// Verify
+		assertEquals(11, count);
+		assertEquals(Arrays.asList(12, 17, 22, 22), startPositions());
+	}
+}
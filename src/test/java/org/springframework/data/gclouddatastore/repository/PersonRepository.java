@@ -16,10 +16,19 @@
 
 package org.springframework.data.gclouddatastore.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
+import com.google.cloud.datastore.Key;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.util.concurrent.ListenableFuture;
+
 public interface PersonRepository extends GcloudDatastoreRepository<Person, Long> {
 
 	Person findById(long id);
@@ -47,6 +56,51 @@ public interface PersonRepository extends GcloudDatastoreRepository<Person, Long
 
 	Optional<Person> findFirstById(long id);
 
+	List<Person> findTop3ByLastNameOrderByFirstNameAsc(String lastName);
+
 	Stream<Person> findByLastName(String lastName);
 
+	long countByLastName(String lastName);
+
+	boolean existsByLastName(String lastName);
+
+	Slice<Person> findSliceByLastName(String lastName, Pageable pageable);
+
+	Page<Person> findPageByLastName(String lastName, Pageable pageable);
+
+	List<Long> findIdByLastName(String lastName);
+
+	Stream<Key> findKeysByLastName(String lastName);
+
+	List<PersonName> findNamesByEmailAddress(String emailAddress);
+
+	List<PersonName> findNamesByLastName(String lastName);
+
+	List<PersonName> findNamesByLastNameIn(Collection<String> lastNames);
+
+	CompletableFuture<List<Person>> findByEmailAddress(String emailAddress);
+
+	ListenableFuture<Person> findFirstByEmailAddress(String emailAddress);
+
+	List<Person> findByBirthYearGreaterThan(int birthYear);
+
+	List<Person> findByBirthYearBetween(int from, int to);
+
+	List<Person> findByLastNameStartingWith(String prefix);
+
+	List<Person> findByCitizenTrue();
+
+	List<Person> findByEmailAddressIsNotNull();
+
+	List<Person> findByLastNameIn(Collection<String> lastNames);
+
+	List<Person> findByFirstNameOrLastName(String firstName, String lastName);
+
+	List<Person> findByLastNameInOrderByBirthYearAsc(Collection<String> lastNames);
+
+	List<Long> findIdByLastNameInOrderByBirthYearDesc(Collection<String> lastNames);
+
+	List<Person> findByLastNameOrFirstNameOrderByBirthYearAsc(String lastName,
+			String firstName);
+
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyQuery;
+import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.QueryResults;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PrefetchingQueryIteratorTests {
+
+	private final List<Key> keys = new ArrayList<>();
+
+	private final Map<Cursor, Integer> cursors = new HashMap<>();
+
+	private final List<KeyQuery> queries = new ArrayList<>();
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	private final Datastore datastore = new StubDatastore()
+			.onRun(query -> run((KeyQuery) query)).getDatastore();
+
+	public PrefetchingQueryIteratorTests() {
+		for (int i = 1; i <= 10; i++) {
+			this.keys.add(Key.newBuilder("project", "Person", i).build());
+		}
+	}
+
+	@After
+	public void tearDown() {
+		this.executor.shutdown();
+	}
+
+	private synchronized QueryResults<Key> run(KeyQuery query) {
+		this.queries.add(query);
+		int start = query.getStartCursor() == null ? query.getOffset()
+				: this.cursors.get(query.getStartCursor());
+		int end = query.getLimit() == null ? this.keys.size()
+				: Math.min(this.keys.size(), start + query.getLimit());
+		Iterator<Key> iterator = this.keys.subList(start, end).iterator();
+		Cursor cursor = Cursor.copyFrom(Integer.toString(end).getBytes());
+		this.cursors.put(cursor, end);
+		return StubDatastore.results(iterator, count -> cursor);
+	}
+
+	private List<Long> ids(KeyQuery query, int batchSize) {
+		try (Stream<Long> stream = new PrefetchingQueryIterator<Key, Long>(
+				this.datastore, query, batchSize, this.executor, Key::getId).stream()) {
+			return stream.collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	public void testAllBatches() throws Exception {
+		// Exercise
+		List<Long> ids = ids(Query.newKeyQueryBuilder().setKind("Person").build(), 4);
+
+		// Verify
+		assertEquals(range(1, 10), ids);
+		assertEquals(3, this.queries.size());
+	}
+
+	@Test
+	public void testLimitAndOffset() throws Exception {
+		// Exercise
+		List<Long> ids = ids(Query.newKeyQueryBuilder().setKind("Person").setOffset(2)
+				.setLimit(5).build(), 2);
+
+		// Verify
+		assertEquals(range(3, 7), ids);
+		assertEquals(3, this.queries.size());
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		// Setup
+		PrefetchingQueryIterator<Key, Long> iterator = new PrefetchingQueryIterator<>(
+				this.datastore, Query.newKeyQueryBuilder().setKind("Person").build(), 4,
+				this.executor, Key::getId);
+		iterator.next();
+
+		// Exercise
+		iterator.close();
+
+		// Verify
+		assertEquals(false, iterator.hasNext());
+	}
+
+	@Test
+	public void testSaturatedExecutor() throws Exception {
+		// Setup
+		this.executor.shutdown();
+
+		// Exercise
+		List<Long> ids = ids(Query.newKeyQueryBuilder().setKind("Person").build(), 4);
+
+		// Verify
+		assertEquals(range(1, 10), ids);
+		assertEquals(3, this.queries.size());
+	}
+
+	private static List<Long> range(long from, long to) {
+		List<Long> ids = new ArrayList<>();
+		for (long id = from; id <= to; id++) {
+			ids.add(id);
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.cloud.datastore.Key;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class QueryResultCacheTests {
+
+	private static final List<Key> KEYS = Collections
+			.singletonList(Key.newBuilder("project", "Person", 1).build());
+
+	@Test
+	public void testExpiry() {
+		// Setup
+		AtomicLong now = new AtomicLong();
+		QueryResultCache cache = new QueryResultCache(10, 1, TimeUnit.SECONDS, now::get);
+		cache.putIfUnmodified("Kuti", KEYS, cache.stamp());
+
+		// Exercise & Verify
+		assertEquals(KEYS, cache.get("Kuti"));
+		now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		assertNull(cache.get("Kuti"));
+	}
+
+	@Test
+	public void testInvalidate() {
+		// Setup
+		QueryResultCache cache = new QueryResultCache(10, 1, TimeUnit.MINUTES);
+		cache.putIfUnmodified("Kuti", KEYS, cache.stamp());
+		long stamp = cache.stamp();
+
+		// Exercise
+		cache.invalidate();
+		cache.putIfUnmodified("Doe", KEYS, stamp);
+
+		// Verify
+		assertNull(cache.get("Kuti"));
+		assertNull(cache.get("Doe"));
+	}
+
+	@Test
+	public void testPutIfUnmodifiedRacingWithWrite() {
+		// Setup
+		Runnable[] race = new Runnable[1];
+		QueryResultCache cache = new QueryResultCache(10, 1, TimeUnit.MINUTES, () -> {
+			// Runs between the stamp check and the put
+			Runnable write = race[0];
+			race[0] = null;
+			if (write != null) {
+				write.run();
+			}
+			return 0;
+		});
+
+		// Exercise
+		race[0] = () -> cache.invalidate();
+		cache.putIfUnmodified("Kuti", KEYS, cache.stamp());
+
+		// Verify
+		assertNull(cache.get("Kuti"));
+	}
+
+	@Test
+	public void testInvalidationBus() {
+		// Setup
+		LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+		QueryResultCache cache1 = new QueryResultCache(10, 1, TimeUnit.MINUTES);
+		QueryResultCache cache2 = new QueryResultCache(10, 1, TimeUnit.MINUTES);
+		cache1.subscribe(bus, "node1", "Person");
+		cache2.subscribe(bus, "node2", "Person");
+		cache1.putIfUnmodified("Kuti", KEYS, cache1.stamp());
+		cache2.putIfUnmodified("Kuti", KEYS, cache2.stamp());
+
+		// Exercise
+		bus.publish(Invalidation.ofKeys("node1", "Person", KEYS));
+
+		// Verify
+		assertEquals(KEYS, cache1.get("Kuti"));
+		assertNull(cache2.get("Kuti"));
+	}
+}
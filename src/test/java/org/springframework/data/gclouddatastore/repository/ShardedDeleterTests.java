@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.KeyQuery;
+import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.StructuredQuery;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedDeleterTests {
+
+	private static final KeyQuery QUERY = Query.newKeyQueryBuilder().setKind("Person")
+			.build();
+
+	private static Key key(long id) {
+		return Key.newBuilder("project", "Person", id).build();
+	}
+
+	private static Datastore datastore(Function<KeyQuery, Iterator<Key>> run,
+			Set<Key> deleted) {
+
+		return new StubDatastore()
+				.onRun(query -> StubDatastore.results(run.apply((KeyQuery) query)))
+				.on("delete", args -> {
+					for (Key key : (Key[]) args[0]) {
+						if (key.getId() < 0) {
+							throw new IllegalStateException("Delete failed");
+						}
+						deleted.add(key);
+					}
+					return null;
+				}).getDatastore();
+	}
+
+	private static boolean isSampleQuery(KeyQuery query) {
+		return !query.getOrderBy().isEmpty();
+	}
+
+	@Test
+	public void testSplit() {
+		// Setup
+		List<KeyQuery> sampleQueries = new ArrayList<>();
+		ShardedDeleter deleter = new ShardedDeleter(datastore(query -> {
+			sampleQueries.add(query);
+			return Arrays.asList(key(80), key(10), key(50), key(30), key(70), key(20),
+					key(60), key(40)).iterator();
+		}, null), 4, 100);
+
+		// Exercise
+		List<KeyQuery> shards = deleter.split(QUERY);
+
+		// Verify
+		assertEquals(1, sampleQueries.size());
+		assertEquals(Collections.singletonList(StructuredQuery.OrderBy.asc("__scatter__")),
+				sampleQueries.get(0).getOrderBy());
+		assertEquals(Integer.valueOf(4 * 32), sampleQueries.get(0).getLimit());
+		assertEquals(4, shards.size());
+		assertEquals(StructuredQuery.PropertyFilter.lt("__key__", key(30)),
+				shards.get(0).getFilter());
+		assertEquals(StructuredQuery.CompositeFilter.and(
+				StructuredQuery.PropertyFilter.ge("__key__", key(30)),
+				StructuredQuery.PropertyFilter.lt("__key__", key(50))),
+				shards.get(1).getFilter());
+		assertEquals(StructuredQuery.CompositeFilter.and(
+				StructuredQuery.PropertyFilter.ge("__key__", key(50)),
+				StructuredQuery.PropertyFilter.lt("__key__", key(70))),
+				shards.get(2).getFilter());
+		assertEquals(StructuredQuery.PropertyFilter.ge("__key__", key(70)),
+				shards.get(3).getFilter());
+	}
+
+	@Test
+	public void testSplitWithFewSamples() {
+		// Setup
+		ShardedDeleter deleter = new ShardedDeleter(
+				datastore(query -> Collections.singletonList(key(10)).iterator(), null),
+				4, 100);
+
+		// Exercise
+		List<KeyQuery> shards = deleter.split(QUERY);
+
+		// Verify
+		assertEquals(2, shards.size());
+		assertEquals(StructuredQuery.PropertyFilter.lt("__key__", key(10)),
+				shards.get(0).getFilter());
+		assertEquals(StructuredQuery.PropertyFilter.ge("__key__", key(10)),
+				shards.get(1).getFilter());
+	}
+
+	@Test(timeout = 10000)
+	public void testDelete() {
+		// Setup
+		AtomicInteger shard = new AtomicInteger();
+		Set<Key> deleted = ConcurrentHashMap.newKeySet();
+		ShardedDeleter deleter = new ShardedDeleter(datastore(query -> {
+			if (isSampleQuery(query)) {
+				return Collections.singletonList(key(50)).iterator();
+			}
+			// Each shard streams its own ten keys
+			long first = 100 * shard.incrementAndGet();
+			List<Key> keys = new ArrayList<>();
+			for (long id = first; id < first + 10; id++) {
+				keys.add(key(id));
+			}
+			return keys.iterator();
+		}, deleted), 2, 3);
+		List<Long> progress = new CopyOnWriteArrayList<>();
+
+		// Exercise
+		long count = deleter.delete(QUERY, progress::add);
+
+		// Verify
+		assertEquals(2, shard.get());
+		assertEquals(20, count);
+		assertEquals(20, deleted.size());
+		// 3 + 3 + 3 + 1 keys per shard
+		assertEquals(8, progress.size());
+		assertEquals(Long.valueOf(20), Collections.max(progress));
+	}
+
+	@Test(timeout = 10000)
+	public void testDeleteFailure() throws Exception {
+		// Setup
+		AtomicInteger produced = new AtomicInteger();
+		Thread[] producer = new Thread[1];
+		ShardedDeleter deleter = new ShardedDeleter(datastore(query -> {
+			// An ancestor query is not split, so this is the only producer
+			return new Iterator<Key>() {
+				@Override
+				public boolean hasNext() {
+					return true;
+				}
+
+				@Override
+				public Key next() {
+					producer[0] = Thread.currentThread();
+					return key(-produced.incrementAndGet());
+				}
+			};
+		}, ConcurrentHashMap.newKeySet()), 1, 1);
+		KeyQuery query = QUERY.toBuilder()
+				.setFilter(StructuredQuery.PropertyFilter.hasAncestor(key(1))).build();
+
+		// Exercise
+		IllegalStateException failure = null;
+		try {
+			deleter.delete(query, null);
+		}
+		catch (IllegalStateException e) {
+			failure = e;
+		}
+
+		// Verify
+		assertEquals("Delete failed", failure.getMessage());
+		// The producer blocked on the full queue and was cancelled
+		producer[0].join(5000);
+		assertFalse(producer[0].isAlive());
+		assertTrue(produced.get() <= 4);
+	}
+}
@@ -16,21 +16,35 @@
 
 package org.springframework.data.gclouddatastore.repository;
 
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreOptions;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
 import com.google.cloud.datastore.PathElement;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.emptyIterable;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -42,6 +56,15 @@ public class SimpleGcloudDatastoreRepositoryTests {
 	@Autowired
 	PersonRepository repo;
 
+	@Autowired
+	EventRepository eventRepo;
+
+	@Autowired
+	CachedPersonRepository cachedRepo;
+
+	private final Datastore datastore = DatastoreOptions.getDefaultInstance()
+			.getService();
+
 	@Test
 	public void testCount1() throws Exception {
 		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
@@ -173,6 +196,37 @@ public class SimpleGcloudDatastoreRepositoryTests {
 		}
 	}
 
+	@Test
+	public void testFindAllAsync() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(
+					Arrays.asList(new Person(123), new Person(456), new Person(789)));
+
+			// Exercise
+			AsyncPage<Person> first = this.repo.findAllAsync(2).get();
+			AsyncPage<Person> second = first.next().get();
+
+			// Verify
+			assertThat(first.getContent(), contains(new Person(123), new Person(456)));
+			assertThat(second.getContent(), contains(new Person(789)));
+			assertEquals(false, second.hasNext());
+		}
+	}
+
+	@Test
+	public void testFindOneAsync() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.saveAsync(new Person(123)).get();
+
+			// Exercise, Verify
+			assertEquals(new Person(123), this.repo.findOneAsync(123L).get());
+		}
+	}
+
 	@Test
 	public void testFindAllIds1() throws Exception {
 		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
@@ -198,6 +252,19 @@ public class SimpleGcloudDatastoreRepositoryTests {
 		}
 	}
 
+	@Test
+	public void testFindAllIds3() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(new Person(123), new Person(456)));
+
+			// Exercise, Verify
+			assertThat(this.repo.findAll(Arrays.asList(456L, 789L, 123L)),
+					contains(new Person(456), new Person(123)));
+		}
+	}
+
 	@Test
 	public void testFindOne1() throws Exception {
 		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
@@ -251,6 +318,100 @@ public class SimpleGcloudDatastoreRepositoryTests {
 		}
 	}
 
+	@Test
+	public void testSaveEntitiesPipelined() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			SimpleGcloudDatastoreRepository<Person, Long> pipelined = new SimpleGcloudDatastoreRepository<>(
+					new GcloudDatastoreEntityInformation<>(Person.class),
+					DatastoreOptions.getDefaultInstance());
+			ExecutorService executor = Executors.newFixedThreadPool(2);
+			pipelined.setSaveExecutor(executor);
+			pipelined.setSaveMaxPendingBatches(2);
+			pipelined.setBatchSize(1);
+
+			// Exercise
+			try {
+				pipelined.save(Arrays.asList(new Person(123), new Person(456),
+						new Person(789)));
+			}
+			finally {
+				executor.shutdown();
+			}
+
+			// Verify
+			assertThat(this.repo.findAll(Arrays.asList(123L, 456L, 789L)),
+					contains(new Person(123), new Person(456), new Person(789)));
+		}
+	}
+
+	private Key cachedPersonKey(long id) {
+		return this.datastore.newKeyFactory().setKind("CachedPerson")
+				.addAncestor(PathElement.of("Kind", 1)).newKey(id);
+	}
+
+	@Test
+	public void testCachedLookups() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.cachedRepo.deleteAll();
+			CachedPerson person = new CachedPerson(123L, "Kuti");
+			this.cachedRepo.save(person);
+			// Deleted behind the repository's back
+			this.datastore.delete(cachedPersonKey(123L));
+
+			// Exercise, Verify
+			assertEquals(person, this.cachedRepo.findOne(123L));
+			assertThat(this.cachedRepo.findAll(Arrays.asList(123L)), contains(person));
+			assertEquals(true, this.cachedRepo.exists(123L));
+		}
+	}
+
+	@Test
+	public void testCachedWrites() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.cachedRepo.deleteAll();
+			this.cachedRepo.save(new CachedPerson(123L, "Kuti"));
+
+			// Exercise
+			CachedPerson updated = new CachedPerson(123L, "Allen");
+			this.cachedRepo.save(updated);
+			this.datastore.put(Entity.newBuilder(cachedPersonKey(123L))
+					.set("lastName", "Behind").build());
+			CachedPerson found = this.cachedRepo.findOne(123L);
+			this.cachedRepo.delete(123L);
+			this.datastore.put(Entity.newBuilder(cachedPersonKey(123L))
+					.set("lastName", "Behind").build());
+
+			// Verify
+			// Saves write through the cache, deletes evict
+			assertEquals(updated, found);
+			assertEquals(new CachedPerson(123L, "Behind"), this.cachedRepo.findOne(123L));
+		}
+	}
+
+	@Test
+	public void testCachedMisses() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.cachedRepo.deleteAll();
+			assertNull(this.cachedRepo.findOne(123L));
+			// Created behind the repository's back
+			this.datastore.put(Entity.newBuilder(cachedPersonKey(123L))
+					.set("lastName", "Behind").build());
+
+			// Exercise, Verify
+			assertNull(this.cachedRepo.findOne(123L));
+			assertEquals(false, this.cachedRepo.exists(123L));
+			CachedPerson person = new CachedPerson(123L, "Kuti");
+			this.cachedRepo.save(person);
+			assertEquals(person, this.cachedRepo.findOne(123L));
+			assertEquals(true, this.cachedRepo.exists(123L));
+		}
+	}
+
 	@Test
 	public void testQueryMethod_QueryForEntity() throws Exception {
 		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
@@ -327,4 +488,250 @@ public class SimpleGcloudDatastoreRepositoryTests {
 					this.repo.findByLastNameOrderByFirstNameAsc("Kuti"));
 		}
 	}
+
+	private static final Person FELA = new Person(1L, "fela@example.com", "Fela", "Kuti",
+			1938, false);
+
+	private static final Person TONY = new Person(2L, null, "Tony", "Allen", 1940, false);
+
+	private static final Person AKIRA = new Person(3L, null, "Akira", "Kurosawa", 1910,
+			false);
+
+	private static final Person FEMI = new Person(4L, null, "Femi", "Kuti", 1962, false);
+
+	private static final Person SEUN = new Person(5L, null, "Seun", "Kuti", 1982, false);
+
+	@Test
+	public void testQueryMethod_Range() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(FELA, TONY, AKIRA, FEMI, SEUN));
+
+			// Exercise, Verify
+			assertEquals(Arrays.asList(FEMI, SEUN),
+					this.repo.findByBirthYearGreaterThan(1960));
+			assertEquals(Arrays.asList(TONY, FEMI),
+					this.repo.findByBirthYearBetween(1940, 1962));
+			assertEquals(Arrays.asList(AKIRA, FELA, FEMI, SEUN),
+					this.repo.findByLastNameStartingWith("Ku"));
+			assertEquals(Arrays.asList(FELA), this.repo.findByEmailAddressIsNotNull());
+		}
+	}
+
+	@Test
+	public void testQueryMethod_In() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(FELA, TONY, AKIRA, FEMI, SEUN));
+
+			// Exercise, Verify
+			assertThat(this.repo.findByLastNameIn(Arrays.asList("Kuti", "Allen", "Kuti")),
+					containsInAnyOrder(FELA, TONY, FEMI, SEUN));
+			assertEquals(Arrays.asList(FELA, TONY, FEMI, SEUN), this.repo
+					.findByLastNameInOrderByBirthYearAsc(Arrays.asList("Kuti", "Allen")));
+			assertEquals(Arrays.asList(5L, 4L, 2L, 1L),
+					this.repo.findIdByLastNameInOrderByBirthYearDesc(
+							Arrays.asList("Allen", "Kuti")));
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Or() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(FELA, TONY, AKIRA, FEMI, SEUN));
+
+			// Exercise, Verify
+			// Fela Kuti matches both alternatives and is returned once
+			assertThat(this.repo.findByFirstNameOrLastName("Fela", "Kuti"),
+					containsInAnyOrder(FELA, FEMI, SEUN));
+			assertEquals(Arrays.asList(FELA, FEMI, SEUN), this.repo
+					.findByLastNameOrFirstNameOrderByBirthYearAsc("Kuti", "Femi"));
+			assertEquals(Arrays.asList(AKIRA, TONY), this.repo
+					.findByLastNameOrFirstNameOrderByBirthYearAsc("Allen", "Akira"));
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Async() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			Person person = new Person(123);
+			person.setEmailAddress("alice@example.com");
+			this.repo.save(Arrays.asList(person, new Person(456)));
+
+			// Exercise, Verify
+			assertThat(this.repo.findByEmailAddress("alice@example.com").get(),
+					contains(person));
+			assertEquals(person,
+					this.repo.findFirstByEmailAddress("alice@example.com").get());
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Slice() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			Person person1 = new Person(123);
+			person1.setLastName("Smith");
+			Person person2 = new Person(456);
+			person2.setLastName("Smith");
+			Person person3 = new Person(789);
+			person3.setLastName("Smith");
+			this.repo.save(Arrays.asList(person1, person2, person3));
+
+			// Exercise
+			Slice<Person> first = this.repo.findSliceByLastName("Smith",
+					new PageRequest(0, 2));
+			Slice<Person> second = this.repo.findSliceByLastName("Smith",
+					first.nextPageable());
+
+			// Verify
+			assertThat(first.getContent(), contains(person1, person2));
+			assertEquals(true, first.hasNext());
+			assertThat(second.getContent(), contains(person3));
+			assertEquals(false, second.hasNext());
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Page() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			Person person1 = new Person(123);
+			person1.setLastName("Smith");
+			Person person2 = new Person(456);
+			person2.setLastName("Smith");
+			Person person3 = new Person(789);
+			person3.setLastName("Smith");
+			this.repo.save(Arrays.asList(person1, person2, person3));
+
+			// Exercise
+			Page<Person> first = this.repo.findPageByLastName("Smith",
+					new PageRequest(0, 2));
+			Page<Person> second = this.repo.findPageByLastName("Smith",
+					first.nextPageable());
+
+			// Verify
+			assertThat(first.getContent(), contains(person1, person2));
+			assertEquals(3L, first.getTotalElements());
+			assertThat(second.getContent(), contains(person3));
+			assertEquals(3L, second.getTotalElements());
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Top() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(
+					new Person(1L, "", "Fela", "Kuti", 0, false),
+					new Person(2L, "", "Tony", "Allen", 0, false),
+					new Person(3L, "", "Seun", "Kuti", 0, false),
+					new Person(4L, "", "Femi", "Kuti", 0, false),
+					new Person(5L, "", "Yeni", "Kuti", 0, false)));
+
+			// Exercise, Verify
+			assertEquals(
+					Arrays.asList(
+							new Person(1L, "", "Fela", "Kuti", 0, false),
+							new Person(4L, "", "Femi", "Kuti", 0, false),
+							new Person(3L, "", "Seun", "Kuti", 0, false)),
+					this.repo.findTop3ByLastNameOrderByFirstNameAsc("Kuti"));
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Projection() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(
+					new Person(1L, "fela@example.com", "Fela", "Kuti", 0, false),
+					new Person(2L, "tony@example.com", "Tony", "Allen", 0, false)));
+
+			// Exercise
+			List<PersonName> names = this.repo
+					.findNamesByEmailAddress("fela@example.com");
+
+			// Verify
+			assertEquals(1, names.size());
+			assertEquals("Fela", names.get(0).getFirstName());
+			assertEquals("Kuti", names.get(0).getLastName());
+		}
+	}
+
+	@Test
+	public void testQueryMethod_ProjectionOfDate() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.eventRepo.deleteAll();
+			Date date = Date.from(Instant.parse("1970-07-04T20:00:00Z"));
+			this.eventRepo.save(Arrays.asList(new Event(1L, "Shrine", "Afrika", date),
+					new Event(2L, "Encore", "Afrika", new Date())));
+
+			// Exercise
+			List<EventSchedule> schedules = this.eventRepo
+					.findSchedulesByName("Shrine");
+
+			// Verify
+			assertEquals(1, schedules.size());
+			assertEquals("Afrika", schedules.get(0).getVenue());
+			assertEquals(date, schedules.get(0).getDate());
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Ids() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(new Person(1L, "", "Fela", "Kuti", 0, false),
+					new Person(2L, "", "Tony", "Allen", 0, false),
+					new Person(3L, "", "Seun", "Kuti", 0, false)));
+
+			// Exercise, Verify
+			assertEquals(Arrays.asList(1L, 3L), this.repo.findIdByLastName("Kuti"));
+			assertEquals(Arrays.asList(1L, 3L),
+					this.repo.findKeysByLastName("Kuti").map(Key::getId)
+							.collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Count() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(
+					new Person(1L, "", "Fela", "Kuti", 0, false),
+					new Person(2L, "", "Tony", "Allen", 0, false),
+					new Person(3L, "", "Seun", "Kuti", 0, false)));
+
+			// Exercise, Verify
+			assertEquals(2L, this.repo.countByLastName("Kuti"));
+		}
+	}
+
+	@Test
+	public void testQueryMethod_Exists() throws Exception {
+		try (Context ctx = Context.with(PathElement.of("Kind", 1))) {
+			// Setup
+			this.repo.deleteAll();
+			this.repo.save(Arrays.asList(
+					new Person(1L, "", "Fela", "Kuti", 0, false),
+					new Person(2L, "", "Tony", "Allen", 0, false)));
+
+			// Exercise, Verify
+			assertEquals(true, this.repo.existsByLastName("Kuti"));
+			assertEquals(false, this.repo.existsByLastName("Mayer"));
+		}
+	}
 }
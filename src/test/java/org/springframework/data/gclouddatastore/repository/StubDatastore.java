@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import com.google.cloud.datastore.Cursor;
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.DatastoreOptions;
+import com.google.cloud.datastore.KeyFactory;
+import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.QueryResults;
+
+/**
+ * {@link Datastore} for unit tests that answers the methods given a handler, queries
+ * with canned {@link QueryResults}, and fails on everything else.
+ */
+public class StubDatastore {
+
+	public static final String PROJECT_ID = "project";
+
+	private static final AtomicInteger COUNTER = new AtomicInteger();
+
+	private final Map<String, Function<Object[], Object>> handlers = new HashMap<>();
+
+	private final Datastore datastore = (Datastore) Proxy.newProxyInstance(
+			Datastore.class.getClassLoader(), new Class<?>[] { Datastore.class },
+			(proxy, method, args) -> {
+				Function<Object[], Object> handler = this.handlers.get(method.getName());
+				if (handler == null) {
+					throw new UnsupportedOperationException(method.getName());
+				}
+				return handler.apply(args);
+			});
+
+	private final int id = COUNTER.incrementAndGet();
+
+	public StubDatastore() {
+		on("newKeyFactory", args -> new KeyFactory(PROJECT_ID));
+	}
+
+	/**
+	 * Answers the calls of the named method, whatever their overload.
+	 */
+	public StubDatastore on(String methodName, Function<Object[], Object> handler) {
+		this.handlers.put(methodName, handler);
+		return this;
+	}
+
+	public StubDatastore onRun(Function<Query<?>, QueryResults<?>> run) {
+		return on("run", args -> run.apply((Query<?>) args[0]));
+	}
+
+	public Datastore getDatastore() {
+		return this.datastore;
+	}
+
+	/**
+	 * Returns options whose service is this stub. Their host is unique, so they are not
+	 * equal to the options of another stub.
+	 */
+	public DatastoreOptions getOptions() {
+		return DatastoreOptions.newBuilder().setProjectId(PROJECT_ID)
+				.setHost("http://stub-" + this.id)
+				.setServiceFactory(options -> this.datastore).build();
+	}
+
+	public static <T> QueryResults<T> results(List<T> results) {
+		return results(results.iterator(), count -> null);
+	}
+
+	public static <T> QueryResults<T> results(Iterator<T> iterator) {
+		return results(iterator, count -> null);
+	}
+
+	/**
+	 * Returns results whose cursor after is computed from the number of results read.
+	 */
+	public static <T> QueryResults<T> results(Iterator<T> iterator,
+			IntFunction<Cursor> cursorAfter) {
+
+		return new StubQueryResults<>(iterator, cursorAfter);
+	}
+
+	public static <T> QueryResults<T> emptyResults() {
+		return results(Collections.<T>emptyList());
+	}
+
+	private static final class StubQueryResults<T> implements QueryResults<T> {
+
+		private final Iterator<T> iterator;
+
+		private final IntFunction<Cursor> cursorAfter;
+
+		private int count;
+
+		StubQueryResults(Iterator<T> iterator, IntFunction<Cursor> cursorAfter) {
+			this.iterator = iterator;
+			this.cursorAfter = cursorAfter;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.iterator.hasNext();
+		}
+
+		@Override
+		public T next() {
+			T next = this.iterator.next();
+			this.count++;
+			return next;
+		}
+
+		@Override
+		public Class<?> getResultClass() {
+			throw new UnsupportedOperationException("getResultClass");
+		}
+
+		@Override
+		public Cursor getCursorAfter() {
+			return this.cursorAfter.apply(this.count);
+		}
+	}
+}
@@ -16,6 +16,7 @@
 
 package org.springframework.data.gclouddatastore.repository;
 
+import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.time.Instant;
@@ -37,6 +38,7 @@ import com.google.cloud.datastore.DoubleValue;
 import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.Key;
 import com.google.cloud.datastore.LongValue;
+import com.google.cloud.datastore.ProjectionEntity;
 import com.google.cloud.datastore.StringValue;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -348,4 +350,30 @@ public class UnmarshallerTests {
 		Assert.assertEquals(ZonedDateTime.parse("2017-07-09T12:34:56Z"),
 				bean.zonedDateTime);
 	}
+
+	@Test
+	public void testUnmarshalToObject_ProjectedTimestamp() throws Exception {
+		// Setup
+		Instant instant = Instant.parse("2017-07-09T12:34:56Z");
+		// Projections return the index value of a timestamp, in microseconds
+		long micros = instant.getEpochSecond() * 1000000L;
+		Constructor<ProjectionEntity.Builder> constructor = ProjectionEntity.Builder.class
+				.getDeclaredConstructor();
+		constructor.setAccessible(true);
+		ProjectionEntity entity = constructor.newInstance()
+				.setKey(Key.newBuilder("project", "kind", 1).build()).set("date", micros)
+				.set("instant", micros).set("sqlTimestamp", micros)
+				.set("primitiveLong", micros).build();
+		Unmarshaller unmarshaller = new Unmarshaller();
+		TestBean bean = new TestBean();
+
+		// Exercise
+		unmarshaller.unmarshalToObject(entity, bean);
+
+		// Verify
+		Assert.assertEquals(Date.from(instant), bean.date);
+		Assert.assertEquals(instant, bean.instant);
+		Assert.assertEquals(java.sql.Timestamp.from(instant), bean.sqlTimestamp);
+		Assert.assertEquals(micros, bean.primitiveLong);
+	}
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import org.springframework.data.gclouddatastore.repository.PersonRepository;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.core.support.DefaultRepositoryMetadata;
+
+import static org.junit.Assert.assertEquals;
+
+public class GcloudDatastoreQueryMethodTests {
+
+	private GcloudDatastoreQueryMethod queryMethod(Method method) {
+		return new GcloudDatastoreQueryMethod(method,
+				new DefaultRepositoryMetadata(PersonRepository.class),
+				new SpelAwareProxyProjectionFactory());
+	}
+
+	@Test
+	public void testCompletableFuture() throws Exception {
+		// Exercise
+		GcloudDatastoreQueryMethod queryMethod = queryMethod(
+				PersonRepository.class.getMethod("findByEmailAddress", String.class));
+
+		// Verify
+		assertEquals(true, queryMethod.isAsync());
+		assertEquals(false, queryMethod.isListenableFuture());
+		assertEquals(true, queryMethod.isCollectionQuery());
+	}
+
+	@Test
+	public void testListenableFuture() throws Exception {
+		// Exercise
+		GcloudDatastoreQueryMethod queryMethod = queryMethod(PersonRepository.class
+				.getMethod("findFirstByEmailAddress", String.class));
+
+		// Verify
+		assertEquals(true, queryMethod.isAsync());
+		assertEquals(true, queryMethod.isListenableFuture());
+		assertEquals(true, queryMethod.isQueryForEntity());
+	}
+
+	@Test
+	public void testSynchronous() throws Exception {
+		// Exercise
+		GcloudDatastoreQueryMethod queryMethod = queryMethod(
+				PersonRepository.class.getMethod("findByFirstName", String.class));
+
+		// Verify
+		assertEquals(false, queryMethod.isAsync());
+	}
+}
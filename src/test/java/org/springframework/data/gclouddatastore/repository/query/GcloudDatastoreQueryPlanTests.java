@@ -0,0 +1,293 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.cloud.datastore.DatastoreOptions;
+import com.google.cloud.datastore.Query;
+import com.google.cloud.datastore.StructuredQuery;
+import org.junit.Test;
+
+import org.springframework.data.gclouddatastore.repository.KeyFactoryCache;
+import org.springframework.data.gclouddatastore.repository.PersonRepository;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.core.support.DefaultRepositoryMetadata;
+import org.springframework.data.repository.query.ParametersParameterAccessor;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.parser.PartTree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GcloudDatastoreQueryPlanTests {
+
+	private StructuredQuery<?> bind(Method method, Object... values) {
+		QueryMethod queryMethod = new QueryMethod(method,
+				new DefaultRepositoryMetadata(PersonRepository.class),
+				new SpelAwareProxyProjectionFactory());
+		GcloudDatastoreQueryPlan plan = GcloudDatastoreQueryPlan.compile(
+				new PartTree(method.getName(),
+						queryMethod.getResultProcessor().getReturnedType()
+								.getDomainType()),
+				"Person");
+		return plan.bind(Query.newEntityQueryBuilder(),
+				new ParametersParameterAccessor(queryMethod.getParameters(), values),
+				new KeyFactoryCache(DatastoreOptions.getDefaultInstance().getService())).build();
+	}
+
+	private GcloudDatastoreQueryPlan compile(Method method) {
+		QueryMethod queryMethod = new QueryMethod(method,
+				new DefaultRepositoryMetadata(PersonRepository.class),
+				new SpelAwareProxyProjectionFactory());
+		return GcloudDatastoreQueryPlan.compile(new PartTree(method.getName(),
+				queryMethod.getResultProcessor().getReturnedType().getDomainType()),
+				"Person");
+	}
+
+	private List<StructuredQuery.Filter> bindFilters(Method method, Object... values) {
+		QueryMethod queryMethod = new QueryMethod(method,
+				new DefaultRepositoryMetadata(PersonRepository.class),
+				new SpelAwareProxyProjectionFactory());
+		GcloudDatastoreQueryPlan plan = GcloudDatastoreQueryPlan.compile(
+				new PartTree(method.getName(),
+						queryMethod.getResultProcessor().getReturnedType()
+								.getDomainType()),
+				"Person");
+		return plan.bindFilters(
+				new ParametersParameterAccessor(queryMethod.getParameters(), values),
+				new KeyFactoryCache(DatastoreOptions.getDefaultInstance().getService()));
+	}
+
+	@Test
+	public void testSingleCondition() throws Exception {
+		// Exercise
+		StructuredQuery<?> query = bind(
+				PersonRepository.class.getMethod("findByFirstName", String.class),
+				"John");
+
+		// Verify
+		assertEquals(Query.newEntityQueryBuilder().setKind("Person")
+				.setFilter(StructuredQuery.PropertyFilter.eq("firstName", "John"))
+				.build(), query);
+	}
+
+	@Test
+	public void testAndCondition() throws Exception {
+		// Exercise
+		StructuredQuery<?> query = bind(
+				PersonRepository.class.getMethod("findByEmailAddressAndLastName",
+						String.class, String.class),
+				"john.doe@example.com", "Doe");
+
+		// Verify
+		assertEquals(
+				Query.newEntityQueryBuilder().setKind("Person")
+						.setFilter(StructuredQuery.CompositeFilter.and(
+								StructuredQuery.PropertyFilter.eq("emailAddress",
+										"john.doe@example.com"),
+								StructuredQuery.PropertyFilter.eq("lastName", "Doe")))
+						.build(),
+				query);
+	}
+
+	@Test
+	public void testOrderBy() throws Exception {
+		// Exercise
+		StructuredQuery<?> query = bind(PersonRepository.class
+				.getMethod("findByLastNameOrderByFirstNameAsc", String.class), "Kuti");
+
+		// Verify
+		assertEquals(Query.newEntityQueryBuilder().setKind("Person")
+				.setFilter(StructuredQuery.PropertyFilter.eq("lastName", "Kuti"))
+				.setOrderBy(StructuredQuery.OrderBy.asc("firstName")).build(), query);
+	}
+
+	@Test
+	public void testLimit() throws Exception {
+		// Exercise
+		StructuredQuery<?> query = bind(PersonRepository.class
+				.getMethod("findTop3ByLastNameOrderByFirstNameAsc", String.class), "Kuti");
+
+		// Verify
+		assertEquals(Query.newEntityQueryBuilder().setKind("Person")
+				.setFilter(StructuredQuery.PropertyFilter.eq("lastName", "Kuti"))
+				.setOrderBy(StructuredQuery.OrderBy.asc("firstName")).setLimit(3)
+				.build(), query);
+	}
+
+	@Test
+	public void testGreaterThan() throws Exception {
+		// Exercise
+		StructuredQuery<?> query = bind(PersonRepository.class
+				.getMethod("findByBirthYearGreaterThan", int.class), 1980);
+
+		// Verify
+		assertEquals(Query.newEntityQueryBuilder().setKind("Person")
+				.setFilter(StructuredQuery.PropertyFilter.gt("birthYear", 1980))
+				.build(), query);
+	}
+
+	@Test
+	public void testBetween() throws Exception {
+		// Exercise
+		StructuredQuery<?> query = bind(PersonRepository.class
+				.getMethod("findByBirthYearBetween", int.class, int.class), 1970, 1979);
+
+		// Verify
+		assertEquals(Query.newEntityQueryBuilder().setKind("Person")
+				.setFilter(StructuredQuery.CompositeFilter.and(
+						StructuredQuery.PropertyFilter.ge("birthYear", 1970),
+						StructuredQuery.PropertyFilter.le("birthYear", 1979)))
+				.build(), query);
+	}
+
+	@Test
+	public void testStartingWith() throws Exception {
+		// Exercise
+		StructuredQuery<?> query = bind(PersonRepository.class
+				.getMethod("findByLastNameStartingWith", String.class), "Ku");
+
+		// Verify
+		assertEquals(Query.newEntityQueryBuilder().setKind("Person")
+				.setFilter(StructuredQuery.CompositeFilter.and(
+						StructuredQuery.PropertyFilter.ge("lastName", "Ku"),
+						StructuredQuery.PropertyFilter.lt("lastName", "Ku\uDBFF\uDFFF")))
+				.build(), query);
+	}
+
+	@Test
+	public void testTrue() throws Exception {
+		// Exercise
+		StructuredQuery<?> query = bind(
+				PersonRepository.class.getMethod("findByCitizenTrue"));
+
+		// Verify
+		assertEquals(Query.newEntityQueryBuilder().setKind("Person")
+				.setFilter(StructuredQuery.PropertyFilter.eq("citizen", true))
+				.build(), query);
+	}
+
+	@Test
+	public void testIn() throws Exception {
+		// Exercise
+		List<StructuredQuery.Filter> filters = bindFilters(
+				PersonRepository.class.getMethod("findByLastNameInOrderByBirthYearAsc",
+						Collection.class),
+				Arrays.asList("Kuti", "Doe", "Kuti"));
+
+		// Verify
+		assertEquals(Arrays.asList(StructuredQuery.PropertyFilter.eq("lastName", "Kuti"),
+				StructuredQuery.PropertyFilter.eq("lastName", "Doe")), filters);
+	}
+
+	@Test
+	public void testEqualityFiltered() throws Exception {
+		// Exercise
+		GcloudDatastoreQueryPlan truePlan = compile(
+				PersonRepository.class.getMethod("findByCitizenTrue"));
+		GcloudDatastoreQueryPlan inPlan = compile(PersonRepository.class
+				.getMethod("findByLastNameInOrderByBirthYearAsc", Collection.class));
+		GcloudDatastoreQueryPlan rangePlan = compile(
+				PersonRepository.class.getMethod("findByBirthYearGreaterThan", int.class));
+
+		// Verify
+		assertTrue(truePlan.isEqualityFiltered("citizen"));
+		assertTrue(inPlan.isEqualityFiltered("lastName"));
+		assertFalse(inPlan.isEqualityFiltered("birthYear"));
+		assertFalse(rangePlan.isEqualityFiltered("birthYear"));
+	}
+
+	@Test
+	public void testEmptyIn() throws Exception {
+		// Exercise
+		List<StructuredQuery.Filter> filters = bindFilters(
+				PersonRepository.class.getMethod("findByLastNameInOrderByBirthYearAsc",
+						Collection.class),
+				Arrays.asList());
+
+		// Verify
+		assertEquals(0, filters.size());
+	}
+
+	@Test
+	public void testOrCondition() throws Exception {
+		// Exercise
+		List<StructuredQuery.Filter> filters = bindFilters(
+				PersonRepository.class.getMethod(
+						"findByLastNameOrFirstNameOrderByBirthYearAsc", String.class,
+						String.class),
+				"Kuti", "John");
+
+		// Verify
+		assertEquals(Arrays.asList(StructuredQuery.PropertyFilter.eq("lastName", "Kuti"),
+				StructuredQuery.PropertyFilter.eq("firstName", "John")), filters);
+	}
+
+	@Test
+	public void testRequiredIndexes() throws Exception {
+		// Setup
+		GcloudDatastoreQueryPlan plan = compile(PersonRepository.class
+				.getMethod("findByLastNameOrderByFirstNameAsc", String.class));
+
+		// Exercise
+		List<CompositeIndex> indexes = plan.getRequiredIndexes(true, true, null);
+
+		// Verify
+		assertEquals(Collections.singletonList(new CompositeIndex("Person", true,
+				Arrays.asList(StructuredQuery.OrderBy.asc("lastName"),
+						StructuredQuery.OrderBy.asc("firstName")))),
+				indexes);
+	}
+
+	@Test
+	public void testRequiredIndexesOfEqualityFilters() throws Exception {
+		// Setup
+		GcloudDatastoreQueryPlan plan = compile(PersonRepository.class
+				.getMethod("findByEmailAddressAndLastName", String.class, String.class));
+
+		// Exercise
+		List<CompositeIndex> indexes = plan.getRequiredIndexes(true, true, null);
+
+		// Verify
+		assertEquals(Collections.emptyList(), indexes);
+	}
+
+	@Test
+	public void testRequiredIndexesOfInequalityFilter() throws Exception {
+		// Setup
+		GcloudDatastoreQueryPlan plan = compile(PersonRepository.class.getMethod(
+				"findByLastNameInOrderByBirthYearAsc", Collection.class));
+
+		// Exercise
+		List<CompositeIndex> indexes = plan.getRequiredIndexes(false, true, null);
+
+		// Verify
+		assertEquals(Collections.singletonList(new CompositeIndex("Person", false,
+				Arrays.asList(StructuredQuery.OrderBy.asc("lastName"),
+						StructuredQuery.OrderBy.asc("birthYear")))),
+				indexes);
+		assertEquals(Collections.emptyList(), compile(PersonRepository.class
+				.getMethod("findByBirthYearGreaterThan", int.class))
+						.getRequiredIndexes(false, true, null));
+	}
+}
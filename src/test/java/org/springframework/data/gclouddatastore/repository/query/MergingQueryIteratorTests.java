@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.StructuredQuery;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MergingQueryIteratorTests {
+
+	private static Entity person(long id, int birthYear) {
+		return Entity.newBuilder(Key.newBuilder("project", "Person", id).build())
+				.set("birthYear", birthYear).build();
+	}
+
+	private static List<Object> drain(Iterator<Object> iterator) {
+		List<Object> results = new ArrayList<>();
+		iterator.forEachRemaining(results::add);
+		return results;
+	}
+
+	@Test
+	public void testSortedMerge() {
+		// Setup
+		Entity entity1 = person(1, 1970);
+		Entity entity2 = person(2, 1975);
+		Entity entity3 = person(3, 1980);
+		Entity entity4 = person(4, 1985);
+
+		// Exercise
+		List<Object> results = drain(new MergingQueryIterator(
+				Arrays.asList(Arrays.asList(entity1, entity3, entity4).iterator(),
+						Arrays.asList(entity2, entity3).iterator(),
+						Collections.emptyIterator()),
+				new ResultComparator(new StructuredQuery.OrderBy[] {
+						StructuredQuery.OrderBy.asc("birthYear") })));
+
+		// Verify
+		assertEquals(Arrays.asList(entity1, entity2, entity3, entity4), results);
+	}
+
+	@Test
+	public void testConcatenation() {
+		// Setup
+		Key key1 = Key.newBuilder("project", "Person", 1).build();
+		Key key2 = Key.newBuilder("project", "Person", 2).build();
+		Key key3 = Key.newBuilder("project", "Person", 3).build();
+
+		// Exercise
+		List<Object> results = drain(new MergingQueryIterator(
+				Arrays.asList(Arrays.asList(key2, key1).iterator(),
+						Arrays.asList(key1, key3).iterator()),
+				null));
+
+		// Verify
+		assertEquals(Arrays.asList(key2, key1, key3), results);
+	}
+}
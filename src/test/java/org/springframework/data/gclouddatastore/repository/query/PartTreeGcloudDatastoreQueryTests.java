@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.cloud.datastore.Datastore;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.EntityQuery;
+import com.google.cloud.datastore.Key;
+import org.junit.Test;
+
+import org.springframework.data.gclouddatastore.repository.KeyFactoryCache;
+import org.springframework.data.gclouddatastore.repository.OffsetCountStrategy;
+import org.springframework.data.gclouddatastore.repository.Person;
+import org.springframework.data.gclouddatastore.repository.PersonRepository;
+import org.springframework.data.gclouddatastore.repository.QueryResultCache;
+import org.springframework.data.gclouddatastore.repository.StubDatastore;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.core.support.DefaultRepositoryMetadata;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.data.repository.query.parser.PartTree;
+
+import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PartTreeGcloudDatastoreQueryTests {
+
+	private String[] resolveProjection(Method method) {
+		QueryMethod queryMethod = new QueryMethod(method,
+				new DefaultRepositoryMetadata(PersonRepository.class),
+				new SpelAwareProxyProjectionFactory());
+		GcloudDatastoreQueryPlan plan = GcloudDatastoreQueryPlan.compile(
+				new PartTree(method.getName(),
+						queryMethod.getResultProcessor().getReturnedType()
+								.getDomainType()),
+				"Person");
+		return PartTreeGcloudDatastoreQuery.resolveProjection(
+				queryMethod.getResultProcessor().getReturnedType(), plan);
+	}
+
+	@Test
+	public void testClosedProjection() throws Exception {
+		// Exercise
+		String[] projection = resolveProjection(PersonRepository.class
+				.getMethod("findNamesByEmailAddress", String.class));
+
+		// Verify
+		assertThat(projection, arrayContainingInAnyOrder("firstName", "lastName"));
+	}
+
+	@Test
+	public void testProjectionOfEqualityFilteredProperty() throws Exception {
+		// Exercise, Verify
+		assertNull(resolveProjection(
+				PersonRepository.class.getMethod("findNamesByLastName", String.class)));
+	}
+
+	@Test
+	public void testProjectionOfInFilteredProperty() throws Exception {
+		// Exercise, Verify
+		assertNull(resolveProjection(PersonRepository.class
+				.getMethod("findNamesByLastNameIn", Collection.class)));
+	}
+
+	@Test
+	public void testEntityResult() throws Exception {
+		// Exercise, Verify
+		assertNull(resolveProjection(
+				PersonRepository.class.getMethod("findByFirstName", String.class)));
+	}
+
+	@Test
+	public void testKeyMapper() throws Exception {
+		// Setup
+		Key key = Key.newBuilder("project", "Person", 123L).build();
+
+		// Exercise, Verify
+		assertEquals(key,
+				PartTreeGcloudDatastoreQuery.resolveKeyMapper(Key.class, Person.class)
+						.apply(key));
+		assertEquals(123L,
+				PartTreeGcloudDatastoreQuery.resolveKeyMapper(Long.class, Person.class)
+						.apply(key));
+		assertNull(PartTreeGcloudDatastoreQuery.resolveKeyMapper(Person.class,
+				Person.class));
+		assertNull(PartTreeGcloudDatastoreQuery.resolveKeyMapper(String.class,
+				Person.class));
+	}
+
+	@Test
+	public void testResultCache() throws Exception {
+		// Setup
+		Key key = Key.newBuilder("project", "Person", 123L).build();
+		AtomicInteger runs = new AtomicInteger();
+		Datastore datastore = new StubDatastore().onRun(run -> {
+			runs.incrementAndGet();
+			return StubDatastore.results(Collections.singletonList(key));
+		}).getDatastore();
+		PartTreeGcloudDatastoreQuery query = new PartTreeGcloudDatastoreQuery(
+				new GcloudDatastoreQueryMethod(
+						PersonRepository.class.getMethod("findIdByLastName", String.class),
+						new DefaultRepositoryMetadata(PersonRepository.class),
+						new SpelAwareProxyProjectionFactory()),
+				datastore, new KeyFactoryCache(datastore), new OffsetCountStrategy());
+		QueryResultCache resultCache = new QueryResultCache(10, 1, TimeUnit.MINUTES);
+		query.setResultCache(resultCache);
+
+		// Exercise
+		Object result1 = query.execute(new Object[] { "Kuti" });
+		Object result2 = query.execute(new Object[] { "Kuti" });
+		resultCache.invalidate();
+		Object result3 = query.execute(new Object[] { "Kuti" });
+
+		// Verify
+		assertEquals(Collections.singletonList(123L), result1);
+		assertEquals(result1, result2);
+		assertEquals(result1, result3);
+		assertEquals(2, runs.get());
+	}
+
+	@Test
+	public void testSortedKeysOnlyFanOut() throws Exception {
+		// Setup
+		List<List<Entity>> results = Arrays.asList(
+				Arrays.asList(person(3, 1990), person(1, 1970)),
+				Collections.singletonList(person(2, 1980)));
+		AtomicInteger runs = new AtomicInteger();
+		Datastore datastore = new StubDatastore().onRun(run -> {
+			assertTrue(run instanceof EntityQuery);
+			return StubDatastore.results(results.get(runs.getAndIncrement()));
+		}).getDatastore();
+		PartTreeGcloudDatastoreQuery query = new PartTreeGcloudDatastoreQuery(
+				new GcloudDatastoreQueryMethod(
+						PersonRepository.class.getMethod(
+								"findIdByLastNameInOrderByBirthYearDesc", Collection.class),
+						new DefaultRepositoryMetadata(PersonRepository.class),
+						new SpelAwareProxyProjectionFactory()),
+				datastore, new KeyFactoryCache(datastore), new OffsetCountStrategy());
+
+		// Exercise
+		Object result = query.execute(new Object[] { Arrays.asList("Kuti", "Doe") });
+
+		// Verify
+		assertEquals(Arrays.asList(3L, 2L, 1L), result);
+		assertEquals(2, runs.get());
+	}
+
+	private static Entity person(long id, int birthYear) {
+		return Entity.newBuilder(Key.newBuilder("project", "Person", id).build())
+				.set("birthYear", birthYear).build();
+	}
+}
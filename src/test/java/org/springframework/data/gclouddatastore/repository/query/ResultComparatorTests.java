@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.data.gclouddatastore.repository.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.LongValue;
+import com.google.cloud.datastore.NullValue;
+import com.google.cloud.datastore.StringValue;
+import com.google.cloud.datastore.StructuredQuery;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResultComparatorTests {
+
+	private static Entity person(long id, String lastName, int birthYear) {
+		return Entity.newBuilder(Key.newBuilder("project", "Person", id).build())
+				.set("lastName", lastName).set("birthYear", birthYear).build();
+	}
+
+	@Test
+	public void testCompare() {
+		// Setup
+		Entity entity1 = person(1, "Kuti", 1980);
+		Entity entity2 = person(2, "Doe", 1970);
+		Entity entity3 = person(3, "Kuti", 1970);
+		List<Entity> entities = new ArrayList<>(Arrays.asList(entity1, entity2, entity3));
+
+		// Exercise
+		entities.sort(new ResultComparator(new StructuredQuery.OrderBy[] {
+				StructuredQuery.OrderBy.desc("lastName"),
+				StructuredQuery.OrderBy.asc("birthYear") }));
+
+		// Verify
+		assertEquals(Arrays.asList(entity3, entity1, entity2), entities);
+	}
+
+	@Test
+	public void testCompareTiesByKey() {
+		// Setup
+		Entity entity1 = person(2, "Kuti", 1980);
+		Entity entity2 = person(1, "Kuti", 1980);
+
+		// Exercise
+		int comparison = new ResultComparator(new StructuredQuery.OrderBy[] {
+				StructuredQuery.OrderBy.asc("lastName") }).compare(entity1, entity2);
+
+		// Verify
+		assertTrue(comparison > 0);
+	}
+
+	@Test
+	public void testCompareValuesOfDifferentTypes() {
+		// Exercise & Verify
+		assertTrue(ResultComparator.compareValues(NullValue.of(), LongValue.of(1)) < 0);
+		assertTrue(ResultComparator.compareValues(LongValue.of(1), StringValue.of("")) < 0);
+		assertTrue(ResultComparator.compareValues(null, NullValue.of()) == 0);
+	}
+
+	@Test
+	public void testCompareLists() {
+		// Setup
+		Entity entity1 = Entity.newBuilder(Key.newBuilder("project", "Person", 1L).build())
+				.set("tags", Arrays.asList(StringValue.of("a"), StringValue.of("z")))
+				.build();
+		Entity entity2 = Entity.newBuilder(Key.newBuilder("project", "Person", 2L).build())
+				.set("tags", Arrays.asList(StringValue.of("m"))).build();
+
+		// Exercise
+		int ascending = new ResultComparator(new StructuredQuery.OrderBy[] {
+				StructuredQuery.OrderBy.asc("tags") }).compare(entity1, entity2);
+		int descending = new ResultComparator(new StructuredQuery.OrderBy[] {
+				StructuredQuery.OrderBy.desc("tags") }).compare(entity1, entity2);
+
+		// Verify
+		assertTrue(ascending < 0);
+		assertTrue(descending < 0);
+	}
+
+	@Test
+	public void testCompareStringsByUtf8() {
+		// Setup
+		// U+FF61 sorts after the surrogates of U+1F600 in UTF-16, before it in UTF-8
+		Entity entity1 = person(1, "\uFF61", 1980);
+		Entity entity2 = person(2, "\uD83D\uDE00", 1980);
+
+		// Exercise
+		int comparison = new ResultComparator(new StructuredQuery.OrderBy[] {
+				StructuredQuery.OrderBy.asc("lastName") }).compare(entity1, entity2);
+
+		// Verify
+		assertTrue(comparison < 0);
+	}
+}